@@ -0,0 +1,28 @@
+package com.example.test;
+
+/**
+ * Gmail credentials for one mailbox. {@link #toString()} deliberately leaves the password out
+ * because TestNG prints data-provider parameters in its reports.
+ */
+public class Account {
+    private final String email;
+    private final String password;
+
+    public Account(String email, String password) {
+        this.email = email;
+        this.password = password;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.test;
+
+/**
+ * Outcome of cleaning one mailbox in multi-account mode.
+ */
+public class AccountResult {
+    private final String account;
+    private final boolean success;
+    private final int deleted;
+    private final long durationMillis;
+    private final String error;
+
+    public AccountResult(String account, boolean success, int deleted, long durationMillis, String error) {
+        this.account = account;
+        this.success = success;
+        this.deleted = deleted;
+        this.durationMillis = durationMillis;
+        this.error = error;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Reads the accounts to clean. With accounts.file set, every non-blank line of that file that
+ * does not start with '#' is an "email,password" pair; otherwise the single
+ * gmail.test.email/gmail.test.password account from test.properties is used.
+ */
+public final class AccountSource {
+
+    private AccountSource() {
+    }
+
+    public static List<Account> fromProperties(Properties props) {
+        String file = props.getProperty("accounts.file");
+        if (file == null || file.isEmpty()) {
+            List<Account> accounts = new ArrayList<>();
+            String email = props.getProperty("gmail.test.email");
+            String password = props.getProperty("gmail.test.password");
+            if (email != null && !email.isEmpty() && password != null && !password.isEmpty()) {
+                accounts.add(new Account(email, password));
+            }
+            return accounts;
+        }
+
+        try {
+            return parse(Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read accounts file " + file, e);
+        }
+    }
+
+    static List<Account> parse(List<String> lines) {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            // Passwords may contain commas, email addresses may not
+            int comma = line.indexOf(',');
+            if (comma <= 0 || comma == line.length() - 1) {
+                throw new RuntimeException("Invalid account on line " + (i + 1) + ", expected email,password");
+            }
+            accounts.add(new Account(line.substring(0, comma).trim(), line.substring(comma + 1)));
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-account audit trail of deleted messages as NDJSON, one line per message with its
+ * batch, how the delete was confirmed, and the thread id, sender, subject and date from the
+ * batch's {@link InboxSnapshot}. Lines are serialized and written on a single background
+ * thread, so the deletion loop only hands over rows it already has and never waits for disk.
+ *
+ * Configured from test.properties:
+ *   audit.enabled   write the audit trail (default false)
+ *   audit.dir       where audit files are kept (default ~/.mail-deletion/audit)
+ */
+public class AuditLog implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final ExecutorService executor;
+    private final Json json = new Json();
+
+    private AuditLog(Path file, BufferedWriter writer) {
+        this.file = file;
+        this.writer = writer;
+        this.executor = writer == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static AuditLog open(Properties props, String account) throws IOException {
+        if (!Boolean.parseBoolean(props.getProperty("audit.enabled", "false"))) {
+            return new AuditLog(null, null);
+        }
+        String dir = props.getProperty("audit.dir",
+            Paths.get(System.getProperty("user.home"), ".mail-deletion", "audit").toString());
+        String key = account.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_");
+        return open(Paths.get(dir).resolve(key + ".ndjson"));
+    }
+
+    static AuditLog open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        return new AuditLog(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Queues one line per deleted row; returns at once.
+     */
+    public void deleted(long batch, String via, List<InboxSnapshot.Row> rows) {
+        if (executor == null || rows.isEmpty()) {
+            return;
+        }
+        long time = System.currentTimeMillis();
+        List<InboxSnapshot.Row> copy = new ArrayList<>(rows);
+        executor.execute(() -> write(time, batch, via, copy));
+    }
+
+    private void write(long time, long batch, String via, List<InboxSnapshot.Row> rows) {
+        try {
+            for (InboxSnapshot.Row row : rows) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("time", time);
+                record.put("batch", batch);
+                record.put("via", via);
+                record.putAll(row.toMap());
+                StringBuilder line = new StringBuilder();
+                try (JsonOutput out = json.newOutput(line)) {
+                    out.setPrettyPrint(false).write(record);
+                }
+                writer.write(line.append('\n').toString());
+            }
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write audit records for batch {} to {}: {}", batch, file, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes out everything still queued and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Audit log {} did not drain in time", file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.close();
+        }
+    }
+}
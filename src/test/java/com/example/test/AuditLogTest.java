@@ -0,0 +1,61 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AuditLogTest {
+    private Path dir;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("audit-test");
+    }
+
+    @Test
+    public void writesOneLinePerDeletedRow() throws IOException {
+        Path file = dir.resolve("account.ndjson");
+        try (AuditLog audit = AuditLog.open(file)) {
+            audit.deleted(1, "toast", Arrays.asList(
+                new InboxSnapshot.Row("t1", "alice@example.com", "Invoice", "Jan 2", true, true),
+                new InboxSnapshot.Row("t2", "bob@example.com", "Line one\nline \"two\"", "Jan 3", true, true)));
+            audit.deleted(2, "rows", Collections.emptyList());
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assert.assertEquals(lines.size(), 2);
+        Map<String, Object> second = new Json().toType(lines.get(1), Json.MAP_TYPE);
+        Assert.assertEquals(second.get("threadId"), "t2");
+        Assert.assertEquals(second.get("subject"), "Line one\nline \"two\"");
+        Assert.assertEquals(second.get("via"), "toast");
+        Assert.assertEquals(((Number) second.get("batch")).longValue(), 1L);
+    }
+
+    @Test
+    public void appendsAcrossRuns() throws IOException {
+        Path file = dir.resolve("account.ndjson");
+        for (int run = 1; run <= 2; run++) {
+            try (AuditLog audit = AuditLog.open(file)) {
+                audit.deleted(run, "toast", Collections.singletonList(
+                    new InboxSnapshot.Row("t" + run, "carol@example.com", "Report", "Feb 1", true, true)));
+            }
+        }
+        Assert.assertEquals(Files.readAllLines(file, StandardCharsets.UTF_8).size(), 2);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        TestSupport.deleteRecursively(dir);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.test;
+
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AIMD feedback controller around the select/delete/verify cycle. Every confirmed batch
+ * grows the batch size and shortens the pause between batches by a fixed step; a timeout,
+ * a delete confirmed only by the fallback checks, or a Gmail error toast halves the batch
+ * size and doubles the pause. Slow confirmations hold the current state. This keeps the
+ * loop close to what Gmail currently absorbs instead of at a hand-tuned worst case.
+ *
+ * Configured from test.properties:
+ *   adaptive.enabled             adapt batch size and pacing (default true); off selects whole pages
+ *   adaptive.batch.initial       rows selected in the first batch (default 20)
+ *   adaptive.batch.min           smallest batch after backing off (default 5)
+ *   adaptive.batch.max           largest batch (default 100, Gmail's biggest page)
+ *   adaptive.batch.step          rows added after each confirmed batch (default 5)
+ *   adaptive.pause.initial.ms    pause before each batch at start (default 500)
+ *   adaptive.pause.max.ms        longest pause after backing off (default 10000)
+ *   adaptive.pause.step.ms       pause removed after each confirmed batch (default 100)
+ *   adaptive.backoff.factor      multiplier applied to the batch size on congestion (default 0.5)
+ *   adaptive.slow.ms             confirmations slower than this do not grow the batch (default 5000)
+ */
+public class BatchController {
+    private static final Logger logger = LoggerFactory.getLogger(BatchController.class);
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final long MIN_BACKOFF_PAUSE_MS = 250;
+
+    public enum Signal {
+        /** No confirmation of any kind before the CONFIRM timeout. */
+        TIMEOUT,
+        /** Deleted, but only the slow fallback checks could tell; the toast never came. */
+        MISSING_TOAST,
+        /** Gmail answered with an error toast such as "Oops, the system encountered a problem". */
+        THROTTLED,
+        /** The batch broke off with an exception. */
+        ERROR
+    }
+
+    private final boolean enabled;
+    private final int minBatch;
+    private final int maxBatch;
+    private final int batchStep;
+    private final long maxPauseMillis;
+    private final long pauseStepMillis;
+    private final double backoffFactor;
+    private final long slowMillis;
+    private final RunMetrics metrics;
+    private int batchSize;
+    private long pauseMillis;
+    private double latencyEwma = -1;
+    private double failureRate;
+
+    BatchController(boolean enabled, int initialBatch, int minBatch, int maxBatch, int batchStep, long initialPauseMillis,
+            long maxPauseMillis, long pauseStepMillis, double backoffFactor, long slowMillis, RunMetrics metrics) {
+        this.enabled = enabled;
+        this.minBatch = minBatch;
+        this.maxBatch = maxBatch;
+        this.batchStep = batchStep;
+        this.maxPauseMillis = maxPauseMillis;
+        this.pauseStepMillis = pauseStepMillis;
+        this.backoffFactor = backoffFactor;
+        this.slowMillis = slowMillis;
+        this.metrics = metrics;
+        this.batchSize = Math.max(minBatch, Math.min(maxBatch, initialBatch));
+        this.pauseMillis = Math.min(maxPauseMillis, initialPauseMillis);
+        publish();
+    }
+
+    public static BatchController fromProperties(Properties props, RunMetrics metrics) {
+        return new BatchController(
+            Boolean.parseBoolean(props.getProperty("adaptive.enabled", "true")),
+            Integer.parseInt(props.getProperty("adaptive.batch.initial", "20").trim()),
+            Integer.parseInt(props.getProperty("adaptive.batch.min", "5").trim()),
+            Integer.parseInt(props.getProperty("adaptive.batch.max", "100").trim()),
+            Integer.parseInt(props.getProperty("adaptive.batch.step", "5").trim()),
+            Long.parseLong(props.getProperty("adaptive.pause.initial.ms", "500").trim()),
+            Long.parseLong(props.getProperty("adaptive.pause.max.ms", "10000").trim()),
+            Long.parseLong(props.getProperty("adaptive.pause.step.ms", "100").trim()),
+            Double.parseDouble(props.getProperty("adaptive.backoff.factor", "0.5").trim()),
+            Long.parseLong(props.getProperty("adaptive.slow.ms", "5000").trim()),
+            metrics);
+    }
+
+    /**
+     * Maximum number of rows to select for the next batch; unbounded when adaptation is off.
+     */
+    public int getBatchSize() {
+        return enabled ? batchSize : Integer.MAX_VALUE;
+    }
+
+    public long getPauseMillis() {
+        return enabled ? pauseMillis : 0;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    /**
+     * Waits out the current pause before the next batch.
+     */
+    public void pace() throws InterruptedException {
+        long pause = getPauseMillis();
+        if (pause > 0) {
+            Thread.sleep(pause);
+        }
+    }
+
+    /**
+     * Additive increase after a batch confirmed by the in-page observer.
+     */
+    public void onConfirmed(long latencyMillis) {
+        latencyEwma = latencyEwma < 0 ? latencyMillis : latencyEwma + EWMA_WEIGHT * (latencyMillis - latencyEwma);
+        failureRate -= EWMA_WEIGHT * failureRate;
+        if (!enabled) {
+            publish();
+            return;
+        }
+        if (latencyMillis > slowMillis) {
+            logger.info("Batch confirmed slowly ({} ms), holding batch size {} and pause {} ms",
+                latencyMillis, batchSize, pauseMillis);
+            publish();
+            return;
+        }
+        int previousBatch = batchSize;
+        long previousPause = pauseMillis;
+        batchSize = Math.min(maxBatch, batchSize + batchStep);
+        pauseMillis = Math.max(0, pauseMillis - pauseStepMillis);
+        if (batchSize != previousBatch || pauseMillis != previousPause) {
+            logger.info("Batch confirmed in {} ms, batch size {} -> {}, pause {} -> {} ms",
+                latencyMillis, previousBatch, batchSize, previousPause, pauseMillis);
+        }
+        publish();
+    }
+
+    /**
+     * Multiplicative decrease after a congestion signal.
+     */
+    public void onCongestion(Signal signal) {
+        failureRate += EWMA_WEIGHT * (1 - failureRate);
+        metrics.increment("adaptive.backoffs." + signal.name().toLowerCase(), 1);
+        if (!enabled) {
+            publish();
+            return;
+        }
+        int previousBatch = batchSize;
+        long previousPause = pauseMillis;
+        batchSize = Math.max(minBatch, (int) Math.floor(batchSize * backoffFactor));
+        pauseMillis = Math.min(maxPauseMillis, Math.max(MIN_BACKOFF_PAUSE_MS, pauseMillis * 2));
+        logger.warn("Backing off after {}: batch size {} -> {}, pause {} -> {} ms, failure rate {}",
+            signal, previousBatch, batchSize, previousPause, pauseMillis, String.format("%.2f", failureRate));
+        publish();
+    }
+
+    private void publish() {
+        if (enabled) {
+            metrics.gauge("adaptive.batch.size", batchSize);
+        }
+        metrics.gauge("adaptive.pause.ms", getPauseMillis());
+        metrics.gauge("adaptive.failure.rate", failureRate);
+        if (latencyEwma >= 0) {
+            metrics.gauge("adaptive.confirm.ewma.ms", Math.round(latencyEwma));
+        }
+    }
+}
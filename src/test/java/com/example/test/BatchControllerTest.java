@@ -0,0 +1,68 @@
+package com.example.test;
+
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BatchControllerTest {
+
+    private static BatchController controller(RunMetrics metrics) {
+        return new BatchController(true, 20, 5, 40, 5, 500, 4000, 100, 0.5, 5000, metrics);
+    }
+
+    @Test
+    public void growsAdditivelyWhileBatchesConfirm() {
+        RunMetrics metrics = new RunMetrics();
+        BatchController controller = controller(metrics);
+
+        for (int i = 0; i < 10; i++) {
+            controller.onConfirmed(300);
+        }
+
+        Assert.assertEquals(controller.getBatchSize(), 40, "batch size is capped at the maximum");
+        Assert.assertEquals(controller.getPauseMillis(), 0, "pause never drops below zero");
+        Assert.assertEquals(((Map<?, ?>) metrics.toReport().get("gauges")).get("adaptive.batch.size"), 40);
+    }
+
+    @Test
+    public void backsOffMultiplicativelyOnCongestion() {
+        RunMetrics metrics = new RunMetrics();
+        BatchController controller = controller(metrics);
+
+        controller.onCongestion(BatchController.Signal.TIMEOUT);
+        Assert.assertEquals(controller.getBatchSize(), 10);
+        Assert.assertEquals(controller.getPauseMillis(), 1000);
+
+        controller.onCongestion(BatchController.Signal.THROTTLED);
+        controller.onCongestion(BatchController.Signal.THROTTLED);
+        Assert.assertEquals(controller.getBatchSize(), 5, "batch size never drops below the minimum");
+        Assert.assertEquals(controller.getPauseMillis(), 4000, "pause is capped at the maximum");
+        Assert.assertEquals(metrics.counter("adaptive.backoffs.throttled"), 2);
+        Assert.assertTrue(controller.getFailureRate() > 0.4);
+
+        controller.onConfirmed(200);
+        Assert.assertEquals(controller.getBatchSize(), 10);
+        Assert.assertEquals(controller.getPauseMillis(), 3900);
+    }
+
+    @Test
+    public void holdsOnSlowConfirmations() {
+        BatchController controller = controller(new RunMetrics());
+
+        controller.onConfirmed(8000);
+
+        Assert.assertEquals(controller.getBatchSize(), 20);
+        Assert.assertEquals(controller.getPauseMillis(), 500);
+    }
+
+    @Test
+    public void disabledControllerSelectsWholePagesWithoutPausing() {
+        BatchController controller = new BatchController(false, 20, 5, 40, 5, 500, 4000, 100, 0.5, 5000, new RunMetrics());
+
+        controller.onCongestion(BatchController.Signal.ERROR);
+
+        Assert.assertEquals(controller.getBatchSize(), Integer.MAX_VALUE);
+        Assert.assertEquals(controller.getPauseMillis(), 0);
+    }
+}
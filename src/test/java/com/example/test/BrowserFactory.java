@@ -0,0 +1,242 @@
+package com.example.test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the ChromeDriver instances used by the single-account test and the worker pool.
+ *
+ * With browser.prewarm on, one browser can be kept warm: either launched ahead of time with
+ * {@link #prewarm(ChromeOptions, Properties)} or parked by {@link #release} instead of being
+ * quit. The next launch with identical options takes it instead of starting Chrome again;
+ * launches on other profiles leave it parked, and only one on its own profile quits it.
+ */
+public final class BrowserFactory {
+    private static final Logger logger = LoggerFactory.getLogger(BrowserFactory.class);
+    private static final Json JSON = new Json();
+
+    private static Warm warm;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(BrowserFactory::discardWarm, "browser-factory-shutdown"));
+    }
+
+    private BrowserFactory() {
+    }
+
+    public static ChromeOptions options(Properties props) {
+        ChromeOptions options = new ChromeOptions();
+        if (LeanProfile.isEnabled(props)) {
+            LeanProfile.applyOptions(options, props);
+        } else {
+            options.addArguments("--start-maximized");
+        }
+        options.addArguments("--disable-notifications");
+        options.addArguments("--disable-popup-blocking");
+        options.addArguments("--disable-blink-features=AutomationControlled");
+        options.addArguments("--disable-extensions");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-infobars");
+        options.addArguments("--lang=en-US");
+        if (TabPipeline.tabs(props) > 1) {
+            // The pipeline works in background tabs, which Chrome would otherwise throttle
+            options.addArguments("--disable-background-timer-throttling");
+            options.addArguments("--disable-renderer-backgrounding");
+            options.addArguments("--disable-backgrounding-occluded-windows");
+        }
+
+        options.setExperimentalOption("excludeSwitches", new String[]{"enable-automation"});
+        options.setExperimentalOption("useAutomationExtension", false);
+        return options;
+    }
+
+    public static WebDriver create(Properties props, SessionCache sessionCache, String account) {
+        ChromeOptions options = options(props);
+        sessionCache.apply(options, account);
+        return launch(options, props);
+    }
+
+    public static boolean isPrewarmEnabled(Properties props) {
+        return Boolean.parseBoolean(props.getProperty("browser.prewarm", "false"));
+    }
+
+    public static WebDriver launch(ChromeOptions options, Properties props) {
+        Warm candidate = takeWarm(options);
+        if (candidate != null && !candidate.key.equals(key(options))) {
+            // It holds the profile lock, so it has to be gone before Chrome starts on that profile
+            quit(candidate);
+        } else if (candidate != null) {
+            try {
+                WebDriver driver = candidate.driver.join();
+                if (isAlive(driver)) {
+                    logger.info("Using pre-warmed browser");
+                    return driver;
+                }
+                quietly(driver);
+            } catch (CompletionException e) {
+                logger.warn("Pre-warmed browser failed to start: {}", e.getCause().getMessage());
+            }
+        }
+        return start(options, props);
+    }
+
+    /**
+     * Starts a browser with these options in the background, to be taken by the next
+     * {@link #launch} with the same options.
+     */
+    public static void prewarm(ChromeOptions options, Properties props) {
+        park(new Warm(key(options), profile(options), startInBackground(options, props)));
+    }
+
+    /**
+     * Starts a browser on another thread for a caller that keeps its own spare, such as the
+     * worker pool, without touching the shared warm slot.
+     */
+    static CompletableFuture<WebDriver> startInBackground(ChromeOptions options, Properties props) {
+        return CompletableFuture.supplyAsync(() -> start(options, props));
+    }
+
+    /**
+     * Done with a browser from {@link #create}: parks it for the next create of the same
+     * account when browser.prewarm is on, quits it otherwise.
+     */
+    public static void release(WebDriver driver, Properties props, SessionCache sessionCache, String account) {
+        if (!isPrewarmEnabled(props) || !isAlive(driver)) {
+            quietly(driver);
+            return;
+        }
+        ChromeOptions options = options(props);
+        sessionCache.apply(options, account);
+        try {
+            driver.get("about:blank");
+        } catch (RuntimeException e) {
+            quietly(driver);
+            return;
+        }
+        park(new Warm(key(options), profile(options), CompletableFuture.completedFuture(driver)));
+        logger.info("Parked browser for the next run");
+    }
+
+    /**
+     * Quits the warm browser, if any.
+     */
+    public static void discardWarm() {
+        Warm previous;
+        synchronized (BrowserFactory.class) {
+            previous = warm;
+            warm = null;
+        }
+        if (previous != null) {
+            quit(previous);
+        }
+    }
+
+    private static void quit(Warm discarded) {
+        try {
+            quietly(discarded.driver.join());
+        } catch (CompletionException e) {
+            logger.debug("Discarded browser had failed to start: {}", e.getCause().getMessage());
+        }
+    }
+
+    private static void park(Warm next) {
+        discardWarm();
+        synchronized (BrowserFactory.class) {
+            warm = next;
+        }
+    }
+
+    /**
+     * Takes the warm browser when it was started with these options, or when it runs on the
+     * same profile and has to be quit first; a browser on another profile stays parked.
+     */
+    private static synchronized Warm takeWarm(ChromeOptions options) {
+        if (warm == null) {
+            return null;
+        }
+        String key = key(options);
+        if (warm.key.equals(key)) {
+            Warm taken = warm;
+            warm = null;
+            return taken;
+        }
+        if (warm.profile != null && warm.profile.equals(profile(options))) {
+            Warm stale = warm;
+            warm = null;
+            return stale;
+        }
+        return null;
+    }
+
+    private static String key(ChromeOptions options) {
+        // JSON compares the option arrays by content, which Map.equals does not
+        return JSON.toJson(options.asMap());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String profile(ChromeOptions options) {
+        Object chrome = options.asMap().get(ChromeOptions.CAPABILITY);
+        Object args = chrome instanceof Map ? ((Map<String, Object>) chrome).get("args") : null;
+        if (args instanceof List) {
+            for (Object arg : (List<Object>) args) {
+                if (String.valueOf(arg).startsWith("--user-data-dir=")) {
+                    return String.valueOf(arg).substring("--user-data-dir=".length());
+                }
+            }
+        }
+        return null;
+    }
+
+    static boolean isAlive(WebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    static void quietly(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            logger.debug("Browser did not quit cleanly: {}", e.getMessage());
+        }
+    }
+
+    private static WebDriver start(ChromeOptions options, Properties props) {
+        DriverProvisioner.provision(props);
+        ChromeDriver driver = new ChromeDriver(options);
+        if (LeanProfile.isEnabled(props)) {
+            try {
+                LeanProfile.blockResources(driver, props);
+            } catch (RuntimeException e) {
+                driver.quit();
+                throw e;
+            }
+        }
+        return driver;
+    }
+
+    private static final class Warm {
+        final String key;
+        final String profile;
+        final CompletableFuture<WebDriver> driver;
+
+        Warm(String key, String profile, CompletableFuture<WebDriver> driver) {
+            this.key = key;
+            this.profile = profile;
+            this.driver = driver;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Scans, selects and verifies every unread row of the current inbox page with one
+ * injected script, instead of several WebDriver commands per checkbox. Rows can be excluded
+ * by thread id, and the result carries an {@link InboxSnapshot} of the list as the selection
+ * left it, which also tells an empty list apart from one that is still loading.
+ */
+public class BulkSelector {
+    private final WebDriver driver;
+    private final WaitEngine waits;
+
+    public BulkSelector(WebDriver driver, WaitEngine waits) {
+        this.driver = driver;
+        this.waits = waits;
+    }
+
+    public Result selectUnreadRows() {
+        return selectUnreadRows(Collections.emptyList(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Selects at most maxRows unread rows, top to bottom, skipping the excluded threads.
+     */
+    @SuppressWarnings("unchecked")
+    public Result selectUnreadRows(Collection<String> excludedThreadIds, int maxRows) {
+        Object raw = ((JavascriptExecutor) driver).executeScript(Scripts.bundle("snapshot-rows.js", "bulk-select.js"),
+            new ArrayList<>(excludedThreadIds), maxRows == Integer.MAX_VALUE ? null : maxRows);
+        if (!(raw instanceof Map)) {
+            throw new IllegalStateException("Bulk selection script returned " + raw);
+        }
+        Map<String, Object> map = (Map<String, Object>) raw;
+
+        List<Integer> failed = new ArrayList<>();
+        for (Object index : (List<Object>) map.get("failed")) {
+            failed.add(((Number) index).intValue());
+        }
+        List<String> threadIds = new ArrayList<>();
+        for (Object threadId : (List<Object>) map.get("threadIds")) {
+            threadIds.add(String.valueOf(threadId));
+        }
+        int selected = ((Number) map.get("selected")).intValue();
+        InboxSnapshot snapshot = InboxSnapshot.from(map.get("snapshot"));
+
+        // Rows Gmail had not shown as checked yet are waited for here rather than clicked again
+        List<Object> unsettled = (List<Object>) map.get("unsettled");
+        if (!unsettled.isEmpty()) {
+            Map<String, Integer> pending = new LinkedHashMap<>();
+            for (Object entry : unsettled) {
+                Map<String, Object> row = (Map<String, Object>) entry;
+                pending.put(String.valueOf(row.get("threadId")), ((Number) row.get("index")).intValue());
+            }
+            snapshot = waits.tryUntil(WaitEngine.Phase.SELECTION, InboxSnapshot.until("clicked rows to show as checked",
+                    current -> current.rows(pending.keySet()).stream().allMatch(InboxSnapshot.Row::isChecked)))
+                .orElseGet(() -> InboxSnapshot.take(driver));
+            for (InboxSnapshot.Row row : snapshot.rows(pending.keySet())) {
+                if (row.isChecked()) {
+                    selected++;
+                    threadIds.add(row.getThreadId());
+                    pending.remove(row.getThreadId());
+                }
+            }
+            failed.addAll(pending.values());
+        }
+        return new Result(((Number) map.get("total")).intValue(), selected,
+            ((Number) map.get("skipped")).intValue(), failed, threadIds, snapshot);
+    }
+
+    public static class Result {
+        private final int total;
+        private final int selected;
+        private final int skipped;
+        private final List<Integer> failedRows;
+        private final List<String> threadIds;
+        private final InboxSnapshot snapshot;
+
+        Result(int total, int selected, int skipped, List<Integer> failedRows, List<String> threadIds,
+                InboxSnapshot snapshot) {
+            this.total = total;
+            this.selected = selected;
+            this.skipped = skipped;
+            this.failedRows = Collections.unmodifiableList(failedRows);
+            this.threadIds = Collections.unmodifiableList(threadIds);
+            this.snapshot = snapshot;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getSelected() {
+            return selected;
+        }
+
+        /** Rows left alone because their thread id was excluded. */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public List<Integer> getFailedRows() {
+            return failedRows;
+        }
+
+        /** Thread ids of the rows that ended up selected. */
+        public List<String> getThreadIds() {
+            return threadIds;
+        }
+
+        /** The message list right after selecting. */
+        public InboxSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /** True when there are no rows and Gmail shows its empty-list marker. */
+        public boolean isEmpty() {
+            return snapshot.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import org.openqa.selenium.json.JsonOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, per-account journal of deletion batches, so a run that dies half way (Chrome
+ * crash, an exception escaping the test) resumes where it stopped instead of starting over.
+ * Every batch is written as a "batch" record with its thread ids and result page before the
+ * delete is issued, followed by a "deleted" or "failed" record once the outcome is known; a
+ * "complete" record closes a finished job, and the next job starts a fresh file.
+ *
+ * Records are JSON lines written straight to a FileChannel, but only forced to disk every
+ * few records or milliseconds, so the journal adds no fsync to most batches. A crash can
+ * lose the unsynced tail; those batches are simply retried or found already gone.
+ *
+ * Configured from test.properties:
+ *   journal.enabled      keep a checkpoint journal (default true)
+ *   journal.dir          where journals are kept (default ~/.mail-deletion/journal)
+ *   journal.sync.every   force to disk after this many records (default 16)
+ *   journal.sync.ms      force to disk when the oldest unsynced record is this old (default 1000)
+ */
+public class CheckpointJournal implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointJournal.class);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Replay replay;
+    private final int syncEvery;
+    private final long syncMillis;
+    private final Json json = new Json();
+    private long nextBatch;
+    private int unsynced;
+    private long firstUnsyncedAt;
+
+    private CheckpointJournal(Path file, FileChannel channel, Replay replay, int syncEvery, long syncMillis) {
+        this.file = file;
+        this.channel = channel;
+        this.replay = replay;
+        this.syncEvery = syncEvery;
+        this.syncMillis = syncMillis;
+        this.nextBatch = replay.getLastBatch() + 1;
+    }
+
+    public static CheckpointJournal open(Properties props, String account) throws IOException {
+        return open(props, account, true);
+    }
+
+    /**
+     * Opens the account's journal; unless {@code resume} is set, whatever an unfinished earlier
+     * run left in it is dropped and the job starts a fresh file.
+     */
+    public static CheckpointJournal open(Properties props, String account, boolean resume) throws IOException {
+        if (!Boolean.parseBoolean(props.getProperty("journal.enabled", "true"))) {
+            return new CheckpointJournal(null, null, Replay.EMPTY, 1, 0);
+        }
+        String dir = props.getProperty("journal.dir",
+            Paths.get(System.getProperty("user.home"), ".mail-deletion", "journal").toString());
+        String key = account.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_");
+        return open(Paths.get(dir).resolve(key + ".jsonl"),
+            Integer.parseInt(props.getProperty("journal.sync.every", "16").trim()),
+            Long.parseLong(props.getProperty("journal.sync.ms", "1000").trim()), resume);
+    }
+
+    static CheckpointJournal open(Path file, int syncEvery, long syncMillis) throws IOException {
+        return open(file, syncEvery, syncMillis, true);
+    }
+
+    static CheckpointJournal open(Path file, int syncEvery, long syncMillis, boolean resume) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Replay replay = resume && Files.exists(file) ? replay(file) : Replay.EMPTY;
+
+        // A finished job leaves nothing to resume, so the next one starts a fresh journal
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Cut a torn last record away, or the first record of this run would be glued onto it
+            channel.truncate(!resume || replay.isFinished() ? 0 : completeLength(channel));
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new CheckpointJournal(file, channel, replay.isFinished() ? Replay.EMPTY : replay, syncEvery, syncMillis);
+    }
+
+    /**
+     * Length of the journal up to and including its last newline.
+     */
+    private static long completeLength(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * What earlier, interrupted runs of the current job already did.
+     */
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Records a batch of emails that is about to be deleted and returns its batch number. The
+     * thread ids may be empty when the rows were selected without reading them.
+     */
+    public long begin(Collection<String> threadIds, int emails, int page) throws IOException {
+        long batch = nextBatch++;
+        Map<String, Object> record = record("batch");
+        record.put("batch", batch);
+        record.put("page", page);
+        record.put("emails", emails);
+        record.put("threads", new ArrayList<>(threadIds));
+        append(record);
+        return batch;
+    }
+
+    public void deleted(long batch) throws IOException {
+        Map<String, Object> record = record("deleted");
+        record.put("batch", batch);
+        append(record);
+    }
+
+    public void failed(long batch) throws IOException {
+        Map<String, Object> record = record("failed");
+        record.put("batch", batch);
+        append(record);
+    }
+
+    /**
+     * Marks the job as finished and forces the journal to disk.
+     */
+    public void complete(int totalDeleted) throws IOException {
+        Map<String, Object> record = record("complete");
+        record.put("deleted", totalDeleted);
+        append(record);
+        sync();
+    }
+
+    private Map<String, Object> record(String type) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", type);
+        record.put("time", System.currentTimeMillis());
+        return record;
+    }
+
+    private void append(Map<String, Object> record) throws IOException {
+        if (channel == null) {
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        try (JsonOutput out = json.newOutput(line)) {
+            out.setPrettyPrint(false).write(record);
+        }
+        line.append('\n');
+        ByteBuffer buffer = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (unsynced++ == 0) {
+            firstUnsyncedAt = System.currentTimeMillis();
+        }
+        if (unsynced >= syncEvery || System.currentTimeMillis() - firstUnsyncedAt >= syncMillis) {
+            sync();
+        }
+    }
+
+    private void sync() throws IOException {
+        if (channel != null && unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+        logger.debug("Closed checkpoint journal {}", file);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Replay replay(Path file) throws IOException {
+        Json json = new Json();
+        Map<Long, List<String>> open = new HashMap<>();
+        Map<Long, Integer> openEmails = new HashMap<>();
+        Map<String, Integer> failures = new HashMap<>();
+        long lastBatch = 0;
+        int page = 1;
+        int deleted = 0;
+        int batches = 0;
+        boolean finished = false;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> record;
+                try {
+                    record = json.toType(line, Json.MAP_TYPE);
+                } catch (JsonException e) {
+                    // Only the unsynced tail of a crashed run can be cut short
+                    logger.warn("Ignoring unreadable journal record in {}: {}", file, line);
+                    continue;
+                }
+                String type = String.valueOf(record.get("type"));
+                long batch = record.get("batch") instanceof Number ? ((Number) record.get("batch")).longValue() : 0;
+                switch (type) {
+                    case "batch":
+                        List<String> threads = new ArrayList<>();
+                        for (Object thread : (List<Object>) record.get("threads")) {
+                            threads.add(String.valueOf(thread));
+                        }
+                        open.put(batch, threads);
+                        openEmails.put(batch, ((Number) record.get("emails")).intValue());
+                        lastBatch = Math.max(lastBatch, batch);
+                        page = ((Number) record.get("page")).intValue();
+                        finished = false;
+                        break;
+                    case "deleted":
+                        List<String> done = open.remove(batch);
+                        if (done != null) {
+                            deleted += openEmails.remove(batch);
+                            batches++;
+                            done.forEach(failures::remove);
+                        }
+                        break;
+                    case "failed":
+                        List<String> failed = open.remove(batch);
+                        openEmails.remove(batch);
+                        if (failed != null) {
+                            for (String thread : failed) {
+                                failures.merge(thread, 1, Integer::sum);
+                            }
+                        }
+                        break;
+                    case "complete":
+                        finished = true;
+                        break;
+                    default:
+                        logger.warn("Ignoring unknown journal record type '{}' in {}", type, file);
+                }
+            }
+        }
+
+        Set<String> skipped = new LinkedHashSet<>();
+        for (Map.Entry<String, Integer> entry : failures.entrySet()) {
+            if (entry.getValue() >= InboxCursor.MAX_ATTEMPTS) {
+                skipped.add(entry.getKey());
+            }
+        }
+        int inDoubt = 0;
+        for (int emails : openEmails.values()) {
+            inDoubt += emails;
+        }
+        return new Replay(batches, deleted, inDoubt, lastBatch, page, skipped, finished);
+    }
+
+    public static class Replay {
+        static final Replay EMPTY = new Replay(0, 0, 0, 0, 1, Collections.emptySet(), false);
+
+        private final int batches;
+        private final int deleted;
+        private final int inDoubt;
+        private final long lastBatch;
+        private final int page;
+        private final Set<String> skippedThreadIds;
+        private final boolean finished;
+
+        Replay(int batches, int deleted, int inDoubt, long lastBatch, int page, Set<String> skippedThreadIds,
+                boolean finished) {
+            this.batches = batches;
+            this.deleted = deleted;
+            this.inDoubt = inDoubt;
+            this.lastBatch = lastBatch;
+            this.page = page;
+            this.skippedThreadIds = Collections.unmodifiableSet(skippedThreadIds);
+            this.finished = finished;
+        }
+
+        public boolean isResumed() {
+            return lastBatch > 0;
+        }
+
+        /** Batches confirmed as deleted. */
+        public int getBatches() {
+            return batches;
+        }
+
+        /** Emails confirmed as deleted. */
+        public int getDeleted() {
+            return deleted;
+        }
+
+        /** Emails of batches that were started but have no recorded outcome. */
+        public int getInDoubt() {
+            return inDoubt;
+        }
+
+        public long getLastBatch() {
+            return lastBatch;
+        }
+
+        /** Result page the last batch was taken from. */
+        public int getPage() {
+            return page;
+        }
+
+        /** Threads that failed often enough to be given up on. */
+        public Set<String> getSkippedThreadIds() {
+            return skippedThreadIds;
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+    }
+}
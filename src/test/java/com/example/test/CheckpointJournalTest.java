@@ -0,0 +1,139 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.openqa.selenium.WebDriver;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CheckpointJournalTest {
+    private Path dir;
+    private Path file;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-test");
+        file = dir.resolve("account.jsonl");
+    }
+
+    @Test
+    public void replaysInterruptedRun() throws IOException {
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 16, 60_000)) {
+            Assert.assertFalse(journal.getReplay().isResumed());
+            journal.deleted(journal.begin(Arrays.asList("a", "b", "c"), 3, 1));
+            journal.failed(journal.begin(Arrays.asList("d", "e"), 2, 1));
+            journal.failed(journal.begin(Collections.singletonList("d"), 1, 2));
+            journal.deleted(journal.begin(Collections.emptyList(), 4, 2));
+            // Crashed before the outcome of this one was written
+            journal.begin(Collections.singletonList("f"), 1, 2);
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 16, 60_000)) {
+            CheckpointJournal.Replay replay = journal.getReplay();
+            Assert.assertTrue(replay.isResumed());
+            Assert.assertEquals(replay.getDeleted(), 7);
+            Assert.assertEquals(replay.getBatches(), 2);
+            Assert.assertEquals(replay.getInDoubt(), 1);
+            Assert.assertEquals(replay.getPage(), 2);
+            Assert.assertEquals(replay.getSkippedThreadIds(), Collections.singleton("d"), "d failed twice, e only once");
+
+            // Batch numbers carry on after the replayed ones
+            Assert.assertEquals(journal.begin(Collections.singletonList("g"), 1, 2), 6);
+        }
+    }
+
+    @Test
+    public void ignoresTornLastRecord() throws IOException {
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 1, 0)) {
+            journal.deleted(journal.begin(Arrays.asList("a", "b"), 2, 1));
+        }
+        Files.write(file, "{\"type\":\"batch\",\"batch\":2,\"thr".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 1, 0)) {
+            Assert.assertEquals(journal.getReplay().getDeleted(), 2);
+            Assert.assertEquals(journal.getReplay().getLastBatch(), 1);
+            journal.deleted(journal.begin(Arrays.asList("c", "d"), 2, 1));
+        }
+
+        // The resumed run's records must not be lost to the torn fragment
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 1, 0)) {
+            Assert.assertEquals(journal.getReplay().getDeleted(), 4);
+            Assert.assertEquals(journal.getReplay().getLastBatch(), 2);
+        }
+    }
+
+    @Test
+    public void startsFreshAfterCompletedJob() throws IOException {
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 16, 60_000)) {
+            journal.deleted(journal.begin(Arrays.asList("a", "b"), 2, 1));
+            journal.complete(2);
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 16, 60_000)) {
+            Assert.assertFalse(journal.getReplay().isResumed());
+            Assert.assertEquals(journal.begin(Collections.singletonList("c"), 1, 1), 1);
+        }
+        Assert.assertEquals(Files.readAllLines(file).size(), 1, "finished job should be cleared from the journal");
+    }
+
+    @Test
+    public void dropsUnfinishedRunWhenNotResuming() throws IOException {
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 16, 60_000)) {
+            journal.deleted(journal.begin(Arrays.asList("a", "b"), 2, 3));
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, 16, 60_000, false)) {
+            Assert.assertFalse(journal.getReplay().isResumed());
+            Assert.assertEquals(journal.begin(Collections.singletonList("c"), 1, 1), 1);
+        }
+        Assert.assertEquals(Files.readAllLines(file).size(), 1, "the unfinished run should be cleared from the journal");
+    }
+
+    @Test
+    public void laterPassDoesNotResumeWhatAnEarlierPassLeftUnfinished() throws Exception {
+        TestSupport.requireChrome("the journal fixture test");
+        try (FixtureServer server = FixtureServer.start()) {
+            FixtureMailbox first = server.createMailbox(10, 20);
+            FixtureMailbox second = server.createMailbox(30, 20);
+            Properties props = TestSupport.headlessProfile();
+            props.setProperty("journal.dir", dir.toString());
+            props.setProperty("gmail.base.url", server.inboxUrl(first));
+            WebDriver driver = TestSupport.launchHeadless(props);
+            GmailCleaner cleaner = new GmailCleaner(driver, props, new SessionCache(false, dir),
+                new Account("fixture@example.com", "unused"));
+            try {
+                Assert.assertTrue(cleaner.processUnreadEmail());
+                Assert.assertEquals(cleaner.getDeletedCount(), 10);
+
+                // What a pass that gave up after one batch on result page 3 leaves behind
+                try (CheckpointJournal journal = CheckpointJournal.open(props, "fixture@example.com")) {
+                    journal.deleted(journal.begin(Arrays.asList("gone-1", "gone-2"), 5, 3));
+                }
+
+                // The next polling cycle finds new mail on page 1 and counts only what it deletes
+                props.setProperty("gmail.base.url", server.inboxUrl(second));
+                Assert.assertTrue(cleaner.processUnreadEmail());
+                Assert.assertEquals(second.getRemaining(), 0, "unread conversations left after the next cycle");
+                Assert.assertEquals(cleaner.getDeletedCount(), 40);
+            } finally {
+                cleaner.close();
+                driver.quit();
+            }
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        TestSupport.deleteRecursively(dir);
+    }
+}
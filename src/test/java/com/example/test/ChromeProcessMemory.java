@@ -0,0 +1,53 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the resident memory of a Chrome instance from /proc. The browser process is found by
+ * its unique --user-data-dir; its renderer, GPU and utility processes are its descendants.
+ * Only works on Linux; elsewhere the lists are empty.
+ */
+public final class ChromeProcessMemory {
+
+    private ChromeProcessMemory() {
+    }
+
+    /**
+     * RSS in kB of the browser process and each of its descendants.
+     */
+    public static List<Long> rssPerProcessKb(Path userDataDir) {
+        List<Long> rss = new ArrayList<>();
+        String marker = "--user-data-dir=" + userDataDir.toAbsolutePath();
+        Optional<ProcessHandle> browser = ProcessHandle.allProcesses()
+            .filter(process -> process.info().commandLine()
+                .map(cmd -> cmd.contains(marker) && !cmd.contains("--type="))
+                .orElse(false))
+            .findFirst();
+        if (browser.isEmpty()) {
+            return rss;
+        }
+        readRssKb(browser.get().pid()).ifPresent(rss::add);
+        browser.get().descendants().forEach(child -> readRssKb(child.pid()).ifPresent(rss::add));
+        return rss;
+    }
+
+    private static Optional<Long> readRssKb(long pid) {
+        Path status = Paths.get("/proc", String.valueOf(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Optional.of(Long.parseLong(line.replaceAll("[^0-9]", "")));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // The process exited or /proc is not available
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounds how many isolated ChromeDriver workers run at once. Each worker gets its own
+ * profile: the account's cached session profile when the session cache is on, otherwise
+ * a throw-away temporary user-data-dir that is deleted when the worker is closed.
+ *
+ * The pool size comes from pool.size and defaults to half the available cores, since a
+ * Gmail tab typically keeps about one core and several hundred MB of RAM busy.
+ *
+ * With browser.prewarm on and throw-away profiles, the pool keeps one spare browser starting
+ * in the background, so the next account does not wait for Chrome to launch. The spare is the
+ * pool's own rather than the shared warm slot of {@link BrowserFactory}, and it is only started
+ * when a slot is free, holding that slot until a worker takes it. Cached session profiles
+ * belong to one account, so they cannot be warmed ahead.
+ */
+public class ChromeWorkerPool {
+    private static final Logger logger = LoggerFactory.getLogger(ChromeWorkerPool.class);
+
+    private final Properties props;
+    private final SessionCache sessionCache;
+    private final Semaphore permits;
+    private final int size;
+    private Spare spare;
+
+    public ChromeWorkerPool(Properties props, SessionCache sessionCache, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1, was " + size);
+        }
+        this.props = props;
+        this.sessionCache = sessionCache;
+        this.size = size;
+        this.permits = new Semaphore(size, true);
+    }
+
+    public static ChromeWorkerPool fromProperties(Properties props, SessionCache sessionCache) {
+        int defaultSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int size = Integer.parseInt(props.getProperty("pool.size", String.valueOf(defaultSize)).trim());
+        logger.info("Chrome worker pool size: {}", size);
+        return new ChromeWorkerPool(props, sessionCache, size);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Blocks until a worker slot is free, then launches a browser for the account.
+     */
+    public Worker acquire(Account account) throws InterruptedException {
+        // A spare already holds a slot, which passes on to the worker that takes it
+        Spare taken = sessionCache.isEnabled() ? null : takeSpare();
+        if (taken == null) {
+            permits.acquire();
+        }
+        Path tempProfile = null;
+        try {
+            WebDriver driver = taken != null ? taken.take() : null;
+            if (driver != null) {
+                tempProfile = taken.profile;
+                logger.info("Using pre-warmed browser");
+            } else {
+                ChromeOptions options = BrowserFactory.options(props);
+                if (sessionCache.isEnabled()) {
+                    sessionCache.apply(options, account.getEmail());
+                } else {
+                    tempProfile = Files.createTempDirectory("mail-deletion-worker-");
+                    options.addArguments("--user-data-dir=" + tempProfile.toAbsolutePath());
+                }
+                driver = BrowserFactory.launch(options, props);
+            }
+            if (!sessionCache.isEnabled() && BrowserFactory.isPrewarmEnabled(props)) {
+                try {
+                    prewarmSpare();
+                } catch (IOException e) {
+                    logger.warn("Could not prepare a spare browser: {}", e.getMessage());
+                }
+            }
+            logger.info("Worker started for {} ({} of {} slots in use)", account, size - permits.availablePermits(), size);
+            return new Worker(driver, tempProfile);
+        } catch (IOException | RuntimeException e) {
+            deleteProfile(tempProfile);
+            permits.release();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new RuntimeException("Failed to create worker profile for " + account, e);
+        }
+    }
+
+    private synchronized Spare takeSpare() {
+        Spare taken = spare;
+        spare = null;
+        return taken;
+    }
+
+    /**
+     * Starts a spare browser on a fresh profile, but only in a slot no worker is using.
+     */
+    private synchronized void prewarmSpare() throws IOException {
+        if (spare != null || !permits.tryAcquire()) {
+            return;
+        }
+        Path profile;
+        try {
+            profile = Files.createTempDirectory("mail-deletion-worker-");
+        } catch (IOException e) {
+            permits.release();
+            throw e;
+        }
+        ChromeOptions options = BrowserFactory.options(props);
+        options.addArguments("--user-data-dir=" + profile.toAbsolutePath());
+        spare = new Spare(profile, BrowserFactory.startInBackground(options, props));
+    }
+
+    /**
+     * Quits the spare browser, deletes its profile and frees its slot.
+     */
+    public void close() {
+        Spare taken = takeSpare();
+        if (taken != null) {
+            taken.discard();
+            permits.release();
+        }
+    }
+
+    private static void deleteProfile(Path profile) {
+        if (profile == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(profile)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not delete worker profile {}: {}", profile, e.getMessage());
+        }
+    }
+
+    private static final class Spare {
+        final Path profile;
+        final CompletableFuture<WebDriver> driver;
+
+        Spare(Path profile, CompletableFuture<WebDriver> driver) {
+            this.profile = profile;
+            this.driver = driver;
+        }
+
+        /**
+         * The spare browser once it is up, or null after discarding a spare that failed or died.
+         */
+        WebDriver take() {
+            try {
+                WebDriver started = driver.join();
+                if (BrowserFactory.isAlive(started)) {
+                    return started;
+                }
+            } catch (CompletionException e) {
+                logger.warn("Spare browser failed to start: {}", e.getCause().getMessage());
+            }
+            discard();
+            return null;
+        }
+
+        /**
+         * Quits the browser before deleting its profile, so Chrome no longer holds the profile lock.
+         */
+        void discard() {
+            try {
+                BrowserFactory.quietly(driver.join());
+            } catch (CompletionException e) {
+                logger.debug("Discarded spare browser had failed to start: {}", e.getCause().getMessage());
+            }
+            deleteProfile(profile);
+        }
+    }
+
+    public class Worker implements AutoCloseable {
+        private final WebDriver driver;
+        private final Path tempProfile;
+
+        Worker(WebDriver driver, Path tempProfile) {
+            this.driver = driver;
+            this.tempProfile = tempProfile;
+        }
+
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        @Override
+        public void close() {
+            try {
+                driver.quit();
+            } finally {
+                deleteProfile(tempProfile);
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Confirms a delete from inside the page instead of polling or reloading: a MutationObserver
+ * is armed on the selected rows before the delete is issued, and one async script resolves
+ * as soon as the "moved to Trash" toast appears or every watched row has left the DOM.
+ * A confirmed result also describes the rows Gmail loaded in place of the deleted ones.
+ * {@link #poll()} checks the same state without waiting, for callers that keep other tabs
+ * busy in the meantime.
+ */
+public class DeletionConfirmer {
+    private static final Duration SCRIPT_TIMEOUT_MARGIN = Duration.ofSeconds(5);
+
+    private final WebDriver driver;
+    private Duration scriptTimeout;
+
+    public DeletionConfirmer(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Starts observing the currently selected unread rows. Must be called after selection and
+     * before the delete is issued, so a toast left over from an earlier batch is never counted.
+     *
+     * @return the number of rows being watched
+     */
+    public int arm() {
+        Object watched = ((JavascriptExecutor) driver).executeScript(Scripts.load("confirm-arm.js"));
+        return watched instanceof Number ? ((Number) watched).intValue() : 0;
+    }
+
+    /**
+     * Blocks in a single async script call until the armed delete is confirmed or the timeout
+     * elapses. A timeout is reported as an unconfirmed result rather than an exception.
+     */
+    public Result await(Duration timeout) {
+        Duration needed = timeout.plus(SCRIPT_TIMEOUT_MARGIN);
+        if (scriptTimeout == null || scriptTimeout.compareTo(needed) < 0) {
+            driver.manage().timeouts().scriptTimeout(needed);
+            scriptTimeout = needed;
+        }
+        return toResult(((JavascriptExecutor) driver).executeAsyncScript(
+            Scripts.bundle("snapshot-rows.js", "confirm-state.js", "confirm-await.js"), timeout.toMillis()));
+    }
+
+    /**
+     * Checks the armed delete once, without waiting. Empty while Gmail has neither confirmed
+     * nor rejected it; the caller decides when it has waited long enough.
+     */
+    public Optional<Result> poll() {
+        Object raw = ((JavascriptExecutor) driver).executeScript(
+            Scripts.bundle("snapshot-rows.js", "confirm-state.js", "confirm-poll.js"));
+        if (raw instanceof Map && Boolean.TRUE.equals(((Map<?, ?>) raw).get("pending"))) {
+            return Optional.empty();
+        }
+        return Optional.of(toResult(raw));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Result toResult(Object raw) {
+        if (!(raw instanceof Map)) {
+            throw new IllegalStateException("Deletion confirmation script returned " + raw);
+        }
+        Map<String, Object> map = (Map<String, Object>) raw;
+        List<String> nextThreadIds = new ArrayList<>();
+        boolean inboxEmpty = false;
+        if (map.get("next") instanceof Map) {
+            Map<String, Object> next = (Map<String, Object>) map.get("next");
+            for (Object threadId : (List<Object>) next.get("threadIds")) {
+                nextThreadIds.add(String.valueOf(threadId));
+            }
+            inboxEmpty = Boolean.TRUE.equals(next.get("empty"));
+        }
+        return new Result(Boolean.TRUE.equals(map.get("confirmed")),
+            map.get("via") != null ? String.valueOf(map.get("via")) : String.valueOf(map.get("reason")),
+            map.get("toast") != null ? String.valueOf(map.get("toast")) : null,
+            ((Number) map.get("removed")).intValue(),
+            ((Number) map.get("elapsedMs")).longValue(),
+            nextThreadIds, inboxEmpty);
+    }
+
+    public static class Result {
+        private final boolean confirmed;
+        private final String via;
+        private final String toast;
+        private final int removedRows;
+        private final long elapsedMillis;
+        private final List<String> nextThreadIds;
+        private final boolean inboxEmpty;
+
+        Result(boolean confirmed, String via, String toast, int removedRows, long elapsedMillis,
+                List<String> nextThreadIds, boolean inboxEmpty) {
+            this.confirmed = confirmed;
+            this.via = via;
+            this.toast = toast;
+            this.removedRows = removedRows;
+            this.elapsedMillis = elapsedMillis;
+            this.nextThreadIds = Collections.unmodifiableList(nextThreadIds);
+            this.inboxEmpty = inboxEmpty;
+        }
+
+        public boolean isConfirmed() {
+            return confirmed;
+        }
+
+        /** "toast" or "rows" when confirmed, otherwise why the wait ended ("timeout", "throttled"). */
+        public String getVia() {
+            return via;
+        }
+
+        /** True when Gmail answered the delete with an error toast instead of confirming it. */
+        public boolean isThrottled() {
+            return !confirmed && "throttled".equals(via);
+        }
+
+        /** Text of the Trash toast, or of the error toast when throttled. */
+        public String getToast() {
+            return toast;
+        }
+
+        public int getRemovedRows() {
+            return removedRows;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /** Thread ids of the unread rows on the page once the delete was confirmed. */
+        public List<String> getNextThreadIds() {
+            return nextThreadIds;
+        }
+
+        /** True when the delete left the list empty and Gmail shows its empty-list marker. */
+        public boolean isInboxEmpty() {
+            return inboxEmpty;
+        }
+    }
+}
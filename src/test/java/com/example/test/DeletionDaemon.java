@@ -0,0 +1,326 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one signed-in browser alive and cleans the unread view on a schedule, so a steady
+ * state cycle costs a view refresh and one script call instead of a full browser lifecycle.
+ * A cycle only starts deleting when the view shows unread threads that have not been given
+ * up on before. After a number of batches the tab is swapped for a fresh one, and when the
+ * browser's resident memory crosses a threshold the whole browser is relaunched on the same
+ * profile, so Chrome's leaks stay contained without signing in again.
+ *
+ * Run it with: mvn test-compile exec:java
+ *
+ * Configured from test.properties:
+ *   daemon.poll.seconds       delay between the end of one cycle and the start of the next (default 300)
+ *   daemon.recycle.batches    open a fresh tab after this many batches (default 500, 0 disables)
+ *   daemon.recycle.rss.mb     relaunch the browser above this total RSS (default 1500, 0 disables)
+ */
+public class DeletionDaemon implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DeletionDaemon.class);
+    private static final By REFRESH_BUTTON = By.cssSelector("div[act='20'], div[role='button'][aria-label='Refresh']");
+    private static final int MAX_FAILED_CYCLES = 3;
+
+    private final Properties props;
+    private final Account account;
+    private final SessionCache sessionCache;
+    private final RunMetrics metrics;
+    private final long pollSeconds;
+    private final long recycleBatches;
+    private final long recycleRssKb;
+    private final ScheduledExecutorService scheduler;
+    // Outlive the individual cleaners, which are replaced with every tab or browser recycle
+    private final BatchController controller;
+    private final Set<String> givenUp = new LinkedHashSet<>();
+    private int retiredDeleted;
+    private Path profile;
+    private boolean tempProfile;
+    private WebDriver driver;
+    private GmailCleaner cleaner;
+    private long batchesSinceRecycle;
+    private long cycles;
+    private int failedCycles;
+
+    public DeletionDaemon(Properties props, Account account, SessionCache sessionCache, RunMetrics metrics) {
+        this.props = props;
+        this.account = account;
+        this.sessionCache = sessionCache;
+        this.metrics = metrics;
+        this.pollSeconds = Long.parseLong(props.getProperty("daemon.poll.seconds", "300").trim());
+        this.recycleBatches = Long.parseLong(props.getProperty("daemon.recycle.batches", "500").trim());
+        this.recycleRssKb = Long.parseLong(props.getProperty("daemon.recycle.rss.mb", "1500").trim()) * 1024;
+        this.controller = BatchController.fromProperties(props, metrics);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deletion-daemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties props = GmailTest.loadProperties();
+        String email = props.getProperty("gmail.test.email");
+        String password = props.getProperty("gmail.test.password");
+        if (email == null || password == null || email.isEmpty() || password.isEmpty()) {
+            throw new RuntimeException("Credentials not found in properties file. Please check test.properties file.");
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        DeletionDaemon daemon = new DeletionDaemon(props, new Account(email, password),
+            SessionCache.fromProperties(props), new RunMetrics());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            daemon.close();
+            stopped.countDown();
+        }, "deletion-daemon-shutdown"));
+        daemon.start();
+        stopped.await();
+    }
+
+    /**
+     * Launches the browser, runs the first full cleanup and schedules the polling cycles.
+     */
+    public void start() throws InterruptedException {
+        launchBrowser();
+        if (!cleaner.run()) {
+            logger.warn("Initial cleanup did not finish, continuing with scheduled cycles");
+        }
+        batchesSinceRecycle += batchCount();
+        scheduler.scheduleWithFixedDelay(this::cycle, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+        logger.info("Deletion daemon running for {}, polling every {} s", account, pollSeconds);
+    }
+
+    void cycle() {
+        cycles++;
+        long start = System.nanoTime();
+        RunMetrics.Timer timer = metrics.start("daemon.cycle");
+        try {
+            int deletedBefore = cleaner.getDeletedCount();
+            long batchesBefore = batchCount();
+
+            int fresh = refreshUnreadView();
+            if (fresh == 0) {
+                logger.info("Cycle {}: no new unread emails", cycles);
+            } else {
+                logger.info("Cycle {}: {} new unread emails", cycles, fresh);
+                boolean finished = cleaner.processUnreadEmail();
+                logger.info("Cycle {}: deleted {} emails in {} ms", cycles, cleaner.getDeletedCount() - deletedBefore,
+                    (System.nanoTime() - start) / 1_000_000);
+                if (!finished) {
+                    batchesSinceRecycle += batchCount() - batchesBefore;
+                    failed("the deletion pass did not finish");
+                    return;
+                }
+            }
+            batchesSinceRecycle += batchCount() - batchesBefore;
+            failedCycles = 0;
+            recycleIfNeeded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // A dead browser or a broken page must not stop the schedule
+            failed(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private void failed(String reason) {
+        failedCycles++;
+        logger.error("Cycle {} failed ({} in a row): {}", cycles, failedCycles, reason);
+        metrics.increment("daemon.cycles.failed", 1);
+        if (failedCycles >= MAX_FAILED_CYCLES) {
+            try {
+                recycleBrowser("repeated failures");
+                failedCycles = 0;
+            } catch (RuntimeException | InterruptedException relaunchFailure) {
+                if (relaunchFailure instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                logger.error("Could not relaunch the browser: {}", relaunchFailure.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Emails deleted over the daemon's whole life, across recycled tabs and browsers.
+     */
+    public int getDeletedCount() {
+        return retiredDeleted + (cleaner == null ? 0 : cleaner.getDeletedCount());
+    }
+
+    /**
+     * Reloads the unread view and returns how many unread threads it shows that were not
+     * given up on before.
+     */
+    private int refreshUnreadView() {
+        WaitEngine waits = WaitEngine.fromProperties(driver, props);
+        List<WebElement> refresh = driver.findElements(REFRESH_BUTTON);
+        if (!refresh.isEmpty() && driver.getCurrentUrl().equals(cleaner.unreadViewUrl())) {
+            // Gmail's own refresh only refetches the list, which is much cheaper than a reload
+            ((JavascriptExecutor) driver).executeScript("arguments[0].click();", refresh.get(0));
+        } else {
+            driver.get(cleaner.unreadViewUrl());
+        }
+        waits.usable(WaitEngine.Phase.INBOX, By.cssSelector("div[role='main']"));
+        waits.tryUntil(WaitEngine.Phase.RECHECK, WaitEngine.listReady(cleaner.getSkippedThreadIds()));
+
+        Object state = ((JavascriptExecutor) driver).executeScript(Scripts.bundle("snapshot-rows.js", "list-state.js"),
+            new ArrayList<>(cleaner.getSkippedThreadIds()));
+        return state instanceof Map ? ((Number) ((Map<?, ?>) state).get("pending")).intValue() : 0;
+    }
+
+    private void recycleIfNeeded() throws InterruptedException {
+        if (recycleRssKb > 0) {
+            long rssKb = ChromeProcessMemory.rssPerProcessKb(profile).stream().mapToLong(Long::longValue).sum();
+            metrics.gauge("daemon.browser.rss.mb", rssKb / 1024);
+            if (rssKb > recycleRssKb) {
+                recycleBrowser("browser RSS at " + rssKb / 1024 + " MB");
+                return;
+            }
+        }
+        if (recycleBatches > 0 && batchesSinceRecycle >= recycleBatches) {
+            recycleTab();
+        }
+    }
+
+    /**
+     * Replaces the tab with a fresh one, which drops the renderer and everything it leaked.
+     */
+    void recycleTab() {
+        logger.info("Recycling tab after {} batches", batchesSinceRecycle);
+        String oldTab = driver.getWindowHandle();
+        cleaner.close();
+        if (driver instanceof HasDevTools) {
+            ((HasDevTools) driver).getDevTools().disconnectSession();
+        }
+        driver.switchTo().newWindow(WindowType.TAB);
+        String newTab = driver.getWindowHandle();
+        driver.switchTo().window(oldTab).close();
+        driver.switchTo().window(newTab);
+        if (LeanProfile.isEnabled(props)) {
+            LeanProfile.blockResources(driver, props);
+        }
+        cleaner = newCleaner();
+        driver.get(cleaner.unreadViewUrl());
+        batchesSinceRecycle = 0;
+        metrics.increment("daemon.recycles.tab", 1);
+    }
+
+    /**
+     * Relaunches the browser on the same profile; its cookies keep the session signed in.
+     */
+    void recycleBrowser(String reason) throws InterruptedException {
+        logger.info("Relaunching browser: {}", reason);
+        quitBrowser();
+        launchBrowser();
+        cleaner.run();
+        batchesSinceRecycle = 0;
+        metrics.increment("daemon.recycles.browser", 1);
+    }
+
+    private void launchBrowser() {
+        ChromeOptions options = BrowserFactory.options(props);
+        if (profile == null) {
+            if (sessionCache.isEnabled()) {
+                profile = sessionCache.profileDir(account.getEmail());
+            } else {
+                // Kept for the daemon's whole life so relaunches stay signed in
+                try {
+                    profile = Files.createTempDirectory("mail-deletion-daemon-");
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to create daemon browser profile", e);
+                }
+                tempProfile = true;
+            }
+        }
+        if (sessionCache.isEnabled()) {
+            sessionCache.apply(options, account.getEmail());
+        } else {
+            options.addArguments("--user-data-dir=" + profile.toAbsolutePath());
+        }
+        driver = BrowserFactory.launch(options, props);
+        cleaner = newCleaner();
+    }
+
+    private GmailCleaner newCleaner() {
+        GmailCleaner fresh = new GmailCleaner(driver, props, sessionCache, account, metrics, controller, givenUp);
+        if (cleaner != null) {
+            retiredDeleted += cleaner.getDeletedCount();
+            if (!cleaner.resumesJournal()) {
+                fresh.skipJournalResume();
+            }
+        }
+        return fresh;
+    }
+
+    private void quitBrowser() {
+        if (cleaner != null) {
+            cleaner.close();
+        }
+        if (driver != null) {
+            try {
+                driver.quit();
+            } catch (RuntimeException e) {
+                logger.warn("Browser did not quit cleanly: {}", e.getMessage());
+            }
+            driver = null;
+        }
+    }
+
+    private long batchCount() {
+        return metrics.counter("batches.succeeded") + metrics.counter("batches.failed");
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        quitBrowser();
+        if (tempProfile) {
+            try (Stream<Path> paths = Files.walk(profile)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                logger.warn("Could not delete daemon profile {}: {}", profile, e.getMessage());
+            }
+        }
+        if (RunMetrics.isEnabled(props)) {
+            Path report = RunMetrics.reportPath(props, account.getEmail());
+            try {
+                metrics.export(report);
+                logger.info("Daemon metrics written to {}", report);
+            } catch (IOException e) {
+                logger.warn("Failed to write daemon metrics to {}: {}", report, e.getMessage());
+            }
+        }
+        logger.info("Deletion daemon stopped after {} cycles and {} deleted emails", cycles, getDeletedCount());
+    }
+}
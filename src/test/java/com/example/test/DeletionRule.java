@@ -0,0 +1,157 @@
+package com.example.test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A targeted deletion policy compiled to a Gmail search query, so Gmail's index picks the
+ * matching conversations and the browser never pages through mail it will not touch. Each
+ * rule runs as its own search-driven bulk deletion pass, see {@link RuleRunner}.
+ *
+ * Rules are read from rules.properties next to test.properties (or rules.file), in name order:
+ *   rule.NAME.from         sender address or name                 from:
+ *   rule.NAME.older_than   age such as 30d, 6m or 2y               older_than:
+ *   rule.NAME.label        Gmail label                             label:
+ *   rule.NAME.larger       size such as 500K or 10M                larger:
+ *   rule.NAME.unread       true for unread only, false for read    is:unread / is:read
+ *   rule.NAME.query        extra raw search terms, appended as is
+ *   rule.NAME.dry_run      only count what would be deleted (default false)
+ */
+public class DeletionRule {
+    static final String DEFAULT_FILE = "src/test/resources/rules.properties";
+    private static final Pattern KEY = Pattern.compile("rule\\.([A-Za-z0-9_-]+)\\.([a-z_]+)");
+    private static final Pattern AGE = Pattern.compile("\\d+[dmy]");
+    private static final Pattern SIZE = Pattern.compile("\\d+[KkMm]?");
+    private static final Pattern FLAG = Pattern.compile("(?i)true|false");
+
+    private final String name;
+    private final String query;
+    private final boolean dryRun;
+
+    DeletionRule(String name, String query, boolean dryRun) {
+        this.name = name;
+        this.query = query;
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * The rules from rules.file, or none when no rules file exists.
+     */
+    public static List<DeletionRule> load(Properties props) throws IOException {
+        Path file = Paths.get(props.getProperty("rules.file", DEFAULT_FILE));
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        Properties rules = new Properties();
+        try (FileInputStream in = new FileInputStream(file.toFile())) {
+            rules.load(in);
+        }
+        return parse(rules);
+    }
+
+    static List<DeletionRule> parse(Properties rules) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : rules.stringPropertyNames()) {
+            Matcher matcher = KEY.matcher(key);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Unrecognized rule key '" + key + "', expected rule.NAME.OPTION");
+            }
+            names.add(matcher.group(1));
+        }
+        List<DeletionRule> parsed = new ArrayList<>();
+        for (String name : names) {
+            parsed.add(compile(name, rules));
+        }
+        return parsed;
+    }
+
+    static DeletionRule compile(String name, Properties rules) {
+        String prefix = "rule." + name + ".";
+        for (String key : rules.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                String option = key.substring(prefix.length());
+                if (!option.matches("from|older_than|label|larger|unread|query|dry_run")) {
+                    throw new IllegalArgumentException("Unknown option '" + option + "' in rule " + name);
+                }
+            }
+        }
+
+        List<String> terms = new ArrayList<>();
+        String from = value(rules, prefix + "from");
+        if (from != null) {
+            terms.add("from:" + quote(from));
+        }
+        String olderThan = value(rules, prefix + "older_than");
+        if (olderThan != null) {
+            terms.add("older_than:" + checked(name, "older_than", olderThan, AGE));
+        }
+        String label = value(rules, prefix + "label");
+        if (label != null) {
+            terms.add("label:" + quote(label));
+        }
+        String larger = value(rules, prefix + "larger");
+        if (larger != null) {
+            terms.add("larger:" + checked(name, "larger", larger, SIZE));
+        }
+        String unread = value(rules, prefix + "unread");
+        if (unread != null) {
+            terms.add(Boolean.parseBoolean(checked(name, "unread", unread, FLAG)) ? "is:unread" : "is:read");
+        }
+        String raw = value(rules, prefix + "query");
+        if (raw != null) {
+            terms.add(raw);
+        }
+        if (terms.isEmpty()) {
+            // An empty query matches the whole mailbox
+            throw new IllegalArgumentException("Rule " + name + " has no conditions and would match every conversation");
+        }
+        // A mistyped flag must not quietly turn a dry run into a delete
+        String dryRun = value(rules, prefix + "dry_run");
+        return new DeletionRule(name, String.join(" ", terms),
+            dryRun != null && Boolean.parseBoolean(checked(name, "dry_run", dryRun, FLAG)));
+    }
+
+    private static String value(Properties rules, String key) {
+        String value = rules.getProperty(key);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static String checked(String name, String option, String value, Pattern format) {
+        if (!format.matcher(value).matches()) {
+            throw new IllegalArgumentException("Rule " + name + " has an invalid " + option + " value '" + value + "'");
+        }
+        return value;
+    }
+
+    private static String quote(String value) {
+        return value.matches("[^\\s\"()]+") ? value : "\"" + value.replace("\"", "") + "\"";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** The compiled Gmail search query. */
+    public String getQuery() {
+        return query;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + query + (dryRun ? ", dry run" : "") + ")";
+    }
+}
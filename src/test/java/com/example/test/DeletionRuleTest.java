@@ -0,0 +1,67 @@
+package com.example.test;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DeletionRuleTest {
+
+    @Test
+    public void compilesPredicatesToSearchOperators() {
+        Properties rules = new Properties();
+        rules.setProperty("rule.newsletters.from", "news@example.com");
+        rules.setProperty("rule.newsletters.older_than", "30d");
+        rules.setProperty("rule.newsletters.unread", "true");
+        rules.setProperty("rule.big.label", "Old Projects");
+        rules.setProperty("rule.big.larger", "10M");
+        rules.setProperty("rule.big.unread", "false");
+        rules.setProperty("rule.big.dry_run", "true");
+
+        List<DeletionRule> parsed = DeletionRule.parse(rules);
+
+        Assert.assertEquals(parsed.size(), 2);
+        Assert.assertEquals(parsed.get(0).getName(), "big", "rules run in name order");
+        Assert.assertEquals(parsed.get(0).getQuery(), "label:\"Old Projects\" larger:10M is:read");
+        Assert.assertTrue(parsed.get(0).isDryRun());
+        Assert.assertEquals(parsed.get(1).getQuery(), "from:news@example.com older_than:30d is:unread");
+        Assert.assertFalse(parsed.get(1).isDryRun());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsRuleWithoutConditions() {
+        Properties rules = new Properties();
+        rules.setProperty("rule.everything.dry_run", "false");
+        DeletionRule.parse(rules);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsMalformedAge() {
+        Properties rules = new Properties();
+        rules.setProperty("rule.old.older_than", "30 days");
+        DeletionRule.parse(rules);
+    }
+
+    @Test
+    public void rejectsFlagsOtherThanTrueOrFalse() {
+        for (String option : new String[] {"dry_run", "unread"}) {
+            Properties rules = new Properties();
+            rules.setProperty("rule.old.older_than", "30d");
+            rules.setProperty("rule.old." + option, "yes");
+            Assert.assertThrows(IllegalArgumentException.class, () -> DeletionRule.parse(rules));
+        }
+
+        Properties rules = new Properties();
+        rules.setProperty("rule.old.older_than", "30d");
+        rules.setProperty("rule.old.dry_run", "TRUE");
+        Assert.assertTrue(DeletionRule.parse(rules).get(0).isDryRun(), "flags are case-insensitive");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsUnknownOption() {
+        Properties rules = new Properties();
+        rules.setProperty("rule.old.older", "30d");
+        DeletionRule.parse(rules);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+/**
+ * Offline-first chromedriver resolution. The first resolution through WebDriverManager pins
+ * the driver path and version in a small properties file; later runs point
+ * webdriver.chrome.driver at the pinned binary and skip WebDriverManager, which otherwise
+ * resolves versions and may probe the network on every browser launch. The pin is dropped
+ * when the binary disappears or the installed Chrome changes (path or modification time).
+ *
+ * Configured from test.properties:
+ *   driver.cache.enabled   pin the resolved chromedriver (default true)
+ *   driver.cache.file      where the pin is kept (default ~/.mail-deletion/chromedriver.properties)
+ */
+public final class DriverProvisioner {
+    private static final Logger logger = LoggerFactory.getLogger(DriverProvisioner.class);
+    static final String DRIVER_PROPERTY = "webdriver.chrome.driver";
+
+    private static String provisioned;
+
+    private DriverProvisioner() {
+    }
+
+    /**
+     * Makes sure webdriver.chrome.driver points at a usable chromedriver, resolving it at
+     * most once per JVM. Safe to call before every launch.
+     */
+    public static synchronized String provision(Properties props) {
+        if (provisioned != null && Files.isExecutable(Paths.get(provisioned))) {
+            return provisioned;
+        }
+        if (!Boolean.parseBoolean(props.getProperty("driver.cache.enabled", "true"))) {
+            provisioned = resolve();
+            return provisioned;
+        }
+
+        Path cacheFile = cacheFile(props);
+        String browser = browserFingerprint();
+        Optional<String> pinned = pinned(cacheFile, browser);
+        if (pinned.isPresent()) {
+            System.setProperty(DRIVER_PROPERTY, pinned.get());
+            logger.info("Using pinned chromedriver {}", pinned.get());
+            provisioned = pinned.get();
+            return provisioned;
+        }
+
+        WebDriverManager manager = WebDriverManager.chromedriver();
+        manager.setup();
+        provisioned = manager.getDownloadedDriverPath();
+        pin(cacheFile, provisioned, manager.getDownloadedDriverVersion(), browser);
+        return provisioned;
+    }
+
+    private static String resolve() {
+        WebDriverManager manager = WebDriverManager.chromedriver();
+        manager.setup();
+        return manager.getDownloadedDriverPath();
+    }
+
+    static Path cacheFile(Properties props) {
+        return Paths.get(props.getProperty("driver.cache.file",
+            Paths.get(System.getProperty("user.home"), ".mail-deletion", "chromedriver.properties").toString()));
+    }
+
+    /**
+     * Identifies the installed Chrome without starting it: its path and modification time,
+     * which both change when Chrome is updated or moved.
+     */
+    static String browserFingerprint() {
+        Optional<Path> browser = WebDriverManager.chromedriver().getBrowserPath();
+        if (!browser.isPresent()) {
+            return "";
+        }
+        try {
+            return browser.get() + "@" + Files.getLastModifiedTime(browser.get()).toMillis();
+        } catch (IOException e) {
+            return browser.get().toString();
+        }
+    }
+
+    /**
+     * The pinned driver path, if the pin exists, its binary is still executable and it was
+     * made for the same Chrome installation.
+     */
+    static Optional<String> pinned(Path cacheFile, String browserFingerprint) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return Optional.empty();
+        }
+        Properties pin = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile)) {
+            pin.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Ignoring unreadable chromedriver pin {}: {}", cacheFile, e.getMessage());
+            return Optional.empty();
+        }
+        String driver = pin.getProperty("chromedriver.path");
+        if (driver == null || !Files.isExecutable(Paths.get(driver))) {
+            logger.info("Pinned chromedriver {} is gone, resolving again", driver);
+            return Optional.empty();
+        }
+        if (!browserFingerprint.equals(pin.getProperty("browser", ""))) {
+            logger.info("Chrome changed since chromedriver {} was pinned, resolving again",
+                pin.getProperty("chromedriver.version"));
+            return Optional.empty();
+        }
+        return Optional.of(driver);
+    }
+
+    static void pin(Path cacheFile, String driverPath, String driverVersion, String browserFingerprint) {
+        if (driverPath == null) {
+            return;
+        }
+        Properties pin = new Properties();
+        pin.setProperty("chromedriver.path", driverPath);
+        pin.setProperty("chromedriver.version", String.valueOf(driverVersion));
+        pin.setProperty("browser", browserFingerprint);
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            // Written aside and moved, so a concurrent reader never sees half a file
+            Path temp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "chromedriver", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                pin.store(out, "Pinned chromedriver, delete to resolve again");
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Pinned chromedriver {} at {}", driverVersion, driverPath);
+        } catch (IOException e) {
+            logger.warn("Could not pin chromedriver in {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    static synchronized void reset() {
+        provisioned = null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Optional;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DriverProvisionerTest {
+    private Path dir;
+    private Path pinFile;
+    private Path driver;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("driver-pin-test");
+        pinFile = dir.resolve("cache").resolve("chromedriver.properties");
+        driver = Files.createFile(dir.resolve("chromedriver"));
+        Files.setPosixFilePermissions(driver, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    public void reusesPinForSameBrowser() {
+        Assert.assertEquals(DriverProvisioner.pinned(pinFile, "/opt/chrome@1"), Optional.empty(), "nothing pinned yet");
+
+        DriverProvisioner.pin(pinFile, driver.toString(), "121.0.6167.85", "/opt/chrome@1");
+        Assert.assertEquals(DriverProvisioner.pinned(pinFile, "/opt/chrome@1"), Optional.of(driver.toString()));
+    }
+
+    @Test
+    public void dropsPinWhenBrowserChanges() {
+        DriverProvisioner.pin(pinFile, driver.toString(), "121.0.6167.85", "/opt/chrome@1");
+        Assert.assertEquals(DriverProvisioner.pinned(pinFile, "/opt/chrome@2"), Optional.empty());
+    }
+
+    @Test
+    public void dropsPinWhenDriverIsGone() throws IOException {
+        DriverProvisioner.pin(pinFile, driver.toString(), "121.0.6167.85", "/opt/chrome@1");
+        Files.delete(driver);
+        Assert.assertEquals(DriverProvisioner.pinned(pinFile, "/opt/chrome@1"), Optional.empty());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        TestSupport.deleteRecursively(dir);
+    }
+}
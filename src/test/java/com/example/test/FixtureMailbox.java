@@ -0,0 +1,98 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side state of one scripted inbox served by {@link FixtureServer}: the unread
+ * conversations still present, how many were deleted, and the artificial latency applied to
+ * every page load and API call for this mailbox.
+ */
+public class FixtureMailbox {
+    private final String id;
+    private final long latencyMillis;
+    private final Map<String, Message> messages = new LinkedHashMap<>();
+    private int deleted;
+
+    FixtureMailbox(String id, int unread, long latencyMillis) {
+        this.id = id;
+        this.latencyMillis = latencyMillis;
+        for (int i = 1; i <= unread; i++) {
+            String threadId = id + "-thread-" + i;
+            messages.put(threadId, new Message(threadId, "Sender " + (i % 17) + " <sender" + (i % 17) + "@example.com>",
+                "Unread message " + i, "Oct " + (1 + i % 28)));
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public synchronized int getRemaining() {
+        return messages.size();
+    }
+
+    public synchronized int getDeleted() {
+        return deleted;
+    }
+
+    synchronized List<Message> firstPage(int pageSize) {
+        return page(1, pageSize);
+    }
+
+    /**
+     * Returns the given 1-based result page of what is left, like Gmail's #search/.../pN views.
+     */
+    synchronized List<Message> page(int pageNumber, int pageSize) {
+        List<Message> page = new ArrayList<>(pageSize);
+        Iterator<Message> iterator = messages.values().iterator();
+        for (int skip = (pageNumber - 1) * pageSize; skip > 0 && iterator.hasNext(); skip--) {
+            iterator.next();
+        }
+        while (iterator.hasNext() && page.size() < pageSize) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    /**
+     * Removes the given conversations; a single "*" removes everything (select-all mode).
+     */
+    synchronized int delete(Collection<String> threadIds) {
+        int removed = 0;
+        if (threadIds.contains("*")) {
+            removed = messages.size();
+            messages.clear();
+        } else {
+            for (String threadId : threadIds) {
+                if (messages.remove(threadId) != null) {
+                    removed++;
+                }
+            }
+        }
+        deleted += removed;
+        return removed;
+    }
+
+    static class Message {
+        final String id;
+        final String sender;
+        final String subject;
+        final String date;
+
+        Message(String id, String sender, String subject, String date) {
+            this.id = id;
+            this.sender = sender;
+            this.subject = subject;
+            this.date = date;
+        }
+    }
+}
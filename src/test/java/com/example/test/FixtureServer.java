@@ -0,0 +1,244 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.json.Json;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server for offline browser tests and benchmarks. Serves the pages under
+ * src/test/resources/fixtures at /fixtures/ and synthetic payloads at /assets/, where
+ * ?kb=N sets the payload size so pages can simulate heavy images, fonts, media and scripts.
+ *
+ * It also hosts scripted Gmail-like inboxes: {@link #createMailbox(int, long)} registers a
+ * mailbox whose page is served at /mail/u/0/?box=ID and whose rows and deletions go through
+ * /mail/api/rows and /mail/api/delete, each delayed by the mailbox's artificial latency.
+ * Result pages after the first are reached through #search/.../pN, like in Gmail.
+ */
+public class FixtureServer implements AutoCloseable {
+    private static final int PAGE_SIZE = 50;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, FixtureMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger mailboxIds = new AtomicInteger();
+    private final Json json = new Json();
+
+    private FixtureServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static FixtureServer start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fixture-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        FixtureServer fixtureServer = new FixtureServer(server, executor);
+        server.createContext("/fixtures/", fixtureServer::serveFixture);
+        server.createContext("/assets/", fixtureServer::serveAsset);
+        server.createContext("/mail/u/0/", fixtureServer::serveInbox);
+        server.createContext("/mail/api/", fixtureServer::serveMailApi);
+        server.setExecutor(executor);
+        server.start();
+        return fixtureServer;
+    }
+
+    public String url(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    public FixtureMailbox createMailbox(int unread, long latencyMillis) {
+        FixtureMailbox mailbox = new FixtureMailbox("box" + mailboxIds.incrementAndGet(), unread, latencyMillis);
+        mailboxes.put(mailbox.getId(), mailbox);
+        return mailbox;
+    }
+
+    public String inboxUrl(FixtureMailbox mailbox) {
+        return url("/mail/u/0/?box=" + mailbox.getId());
+    }
+
+    private void serveInbox(HttpExchange exchange) throws IOException {
+        FixtureMailbox mailbox = mailbox(exchange);
+        if (mailbox == null) {
+            send(exchange, 404, "text/plain", "Unknown mailbox".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        delay(mailbox);
+
+        List<FixtureMailbox.Message> page = mailbox.firstPage(PAGE_SIZE);
+        StringBuilder rows = new StringBuilder();
+        for (FixtureMailbox.Message message : page) {
+            rows.append("<tr class=\"zE\" id=\"").append(message.id).append("\" data-thread-id=\"").append(message.id).append("\">")
+                .append("<td role=\"gridcell\"><div role=\"checkbox\" aria-checked=\"false\"></div></td>")
+                .append("<td role=\"gridcell\"><span class=\"yP\" email=\"").append(escape(message.sender)).append("\">")
+                .append(escape(message.sender)).append("</span></td>")
+                .append("<td role=\"gridcell\"><span class=\"bog\" data-legacy-thread-id=\"").append(message.id).append("\">")
+                .append(escape(message.subject)).append("</span></td>")
+                .append("<td role=\"gridcell\"><span title=\"").append(message.date).append("\">").append(message.date)
+                .append("</span></td></tr>");
+        }
+        String html = inboxTemplate()
+            .replace("__BOX__", mailbox.getId())
+            .replace("__TOTAL__", String.valueOf(mailbox.getRemaining()))
+            .replace("__EMPTY_CLASS__", page.isEmpty() ? "" : "hidden")
+            .replace("__ROWS__", rows);
+        send(exchange, 200, "text/html; charset=utf-8", html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void serveMailApi(HttpExchange exchange) throws IOException {
+        FixtureMailbox mailbox = mailbox(exchange);
+        if (mailbox == null) {
+            send(exchange, 404, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        delay(mailbox);
+
+        Map<String, Object> result = new HashMap<>();
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/delete")) {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            result.put("deleted", mailbox.delete(Arrays.asList(body.split(","))));
+        } else if (path.endsWith("/rows")) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            String page = parameter(exchange, "page");
+            int pageNumber = page != null ? Math.max(1, Integer.parseInt(page)) : 1;
+            for (FixtureMailbox.Message message : mailbox.page(pageNumber, PAGE_SIZE)) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", message.id);
+                row.put("sender", message.sender);
+                row.put("subject", message.subject);
+                row.put("date", message.date);
+                rows.add(row);
+            }
+            result.put("rows", rows);
+        } else {
+            send(exchange, 404, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        result.put("remaining", mailbox.getRemaining());
+        send(exchange, 200, "application/json", json.toJson(result).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private FixtureMailbox mailbox(HttpExchange exchange) {
+        String id = parameter(exchange, "box");
+        return id != null ? mailboxes.get(id) : null;
+    }
+
+    private static String parameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static void delay(FixtureMailbox mailbox) {
+        if (mailbox.getLatencyMillis() > 0) {
+            try {
+                Thread.sleep(mailbox.getLatencyMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private String inboxTemplate() throws IOException {
+        try (InputStream in = FixtureServer.class.getResourceAsStream("/fixtures/inbox.html")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private void serveFixture(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        try (InputStream in = FixtureServer.class.getResourceAsStream(path)) {
+            if (in == null || path.contains("..")) {
+                send(exchange, 404, "text/plain", "Not found: ".concat(path).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            send(exchange, 200, contentType(path), in.readAllBytes());
+        }
+    }
+
+    private void serveAsset(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        int kb = 16;
+        if (query != null && query.startsWith("kb=")) {
+            kb = Integer.parseInt(query.substring(3));
+        }
+        byte[] body = new byte[kb * 1024];
+        String type = contentType(path);
+        if (type.startsWith("application/javascript")) {
+            // A comment of the requested size keeps the payload valid script
+            Arrays.fill(body, (byte) ' ');
+            body[0] = '/';
+            body[1] = '*';
+            body[body.length - 2] = '*';
+            body[body.length - 1] = '/';
+        }
+        send(exchange, 200, type, body);
+    }
+
+    static String contentType(String path) {
+        String lower = path.toLowerCase();
+        if (lower.endsWith(".html")) {
+            return "text/html; charset=utf-8";
+        } else if (lower.endsWith(".js")) {
+            return "application/javascript; charset=utf-8";
+        } else if (lower.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        } else if (lower.endsWith(".png")) {
+            return "image/png";
+        } else if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "image/jpeg";
+        } else if (lower.endsWith(".woff2")) {
+            return "font/woff2";
+        } else if (lower.endsWith(".mp4")) {
+            return "video/mp4";
+        }
+        return "application/octet-stream";
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
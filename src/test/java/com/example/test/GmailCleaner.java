@@ -0,0 +1,793 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the complete Gmail cleanup for one account on one browser: session restore or login,
+ * security prompts, optional select-all bulk mode and the page-by-page deletion loop.
+ */
+public class GmailCleaner {
+    private static final Logger logger = LoggerFactory.getLogger(GmailCleaner.class);
+    static final String DEFAULT_BASE_URL = "https://mail.google.com/mail/u/0/";
+    // Responses Google sends once the password has been accepted and the session cookies are set
+    static final Pattern SIGNED_IN = Pattern.compile(
+        "accounts\\.google\\.com/(CheckCookie|accounts/SetSID|accounts/SetOSID)|mail\\.google\\.com/mail/");
+    
+    private final WebDriver driver;
+    private final WaitEngine waits;
+    private final BulkSelector bulkSelector;
+    private final DeletionConfirmer confirmer;
+    private final BatchController controller;
+    private final NetworkReadiness readiness;
+    private final SessionCache sessionCache;
+    private final Properties props;
+    private final RunMetrics metrics;
+    private final String testEmail;
+    private final String testPassword;
+    private final Set<String> givenUp;
+    private int deletedCount;
+    // Only the first pass of a process resumes an interrupted run; later passes start a fresh journal
+    private boolean resumeJournal = true;
+    
+    public GmailCleaner(WebDriver driver, Properties props, SessionCache sessionCache, Account account) {
+        this(driver, props, sessionCache, account, new RunMetrics());
+    }
+    
+    public GmailCleaner(WebDriver driver, Properties props, SessionCache sessionCache, Account account, RunMetrics metrics) {
+        this(driver, props, sessionCache, account, metrics, BatchController.fromProperties(props, metrics),
+            new LinkedHashSet<>());
+    }
+    
+    /**
+     * A cleaner that carries on from an earlier one: the batch controller keeps its learned
+     * pace, and threads given up on stay given up on.
+     */
+    GmailCleaner(WebDriver driver, Properties props, SessionCache sessionCache, Account account, RunMetrics metrics,
+            BatchController controller, Set<String> givenUp) {
+        this.driver = driver;
+        this.props = props;
+        this.metrics = metrics;
+        this.sessionCache = sessionCache;
+        this.testEmail = account.getEmail();
+        this.testPassword = account.getPassword();
+        this.readiness = NetworkReadiness.attach(driver, props);
+        this.waits = WaitEngine.fromProperties(driver, props).withReadiness(readiness);
+        this.bulkSelector = new BulkSelector(driver, waits);
+        this.confirmer = new DeletionConfirmer(driver);
+        this.controller = controller;
+        this.givenUp = givenUp;
+    }
+    
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+    
+    /**
+     * Whether the next pass still picks up what an interrupted earlier run left in the journal.
+     */
+    boolean resumesJournal() {
+        return resumeJournal;
+    }
+    
+    /**
+     * Makes every pass start a fresh journal, for a cleaner that takes over from one which
+     * already ran a pass in this process.
+     */
+    void skipJournalResume() {
+        resumeJournal = false;
+    }
+    
+    /**
+     * Threads that kept failing and are no longer retried, across all runs of this cleaner.
+     */
+    public Set<String> getSkippedThreadIds() {
+        return Collections.unmodifiableSet(givenUp);
+    }
+    
+    /**
+     * URL of the unread view the deletion loop starts from.
+     */
+    public String unreadViewUrl() {
+        return new InboxCursor(props.getProperty("gmail.base.url", DEFAULT_BASE_URL),
+            props.getProperty("stream.query", "in:inbox is:unread")).pageUrl();
+    }
+    
+    /**
+     * Stops the network tracking; the browser itself stays with its owner.
+     */
+    public void close() {
+        readiness.close();
+    }
+    
+    public boolean run() throws InterruptedException {
+        // A warm profile is usually still signed in, which makes the whole login flow unnecessary
+        boolean restored;
+        RunMetrics.Timer restoreTimer = metrics.start("session.restore");
+        try {
+            restored = sessionCache.restore(driver, waits, "https://mail.google.com/mail/u/0/#inbox");
+        } finally {
+            restoreTimer.stop();
+        }
+        if (!restored) {
+            RunMetrics.Timer loginTimer = metrics.start("login");
+            try {
+                login();
+            } finally {
+                loginTimer.stop();
+            }
+        }
+        
+        RunMetrics.Timer promptsTimer = metrics.start("security.prompts");
+        try {
+            handleSecurityPrompts();
+        } finally {
+            promptsTimer.stop();
+        }
+        
+        // Targeted rules replace the delete-every-unread policy; Gmail's search does the filtering
+        List<DeletionRule> rules = loadRules();
+        if (!rules.isEmpty()) {
+            RunMetrics.Timer rulesTimer = metrics.start("rules");
+            try {
+                return runRules(rules);
+            } finally {
+                rulesTimer.stop();
+            }
+        }
+        
+        if (Boolean.parseBoolean(props.getProperty("bulk.select.all", "false"))) {
+            RunMetrics.Timer bulkTimer = metrics.start("bulk.select.all");
+            try {
+                SearchBulkDeleter.Outcome outcome = new SearchBulkDeleter(driver, waits,
+                    props.getProperty("gmail.base.url", DEFAULT_BASE_URL)).deleteAllMatching("is:unread");
+                logger.info("Select-all bulk mode finished with outcome {}", outcome);
+                metrics.increment("bulk.select.all." + outcome.name().toLowerCase(), 1);
+            } finally {
+                bulkTimer.stop();
+            }
+        }
+        
+        if (TabPipeline.tabs(props) > 1) {
+            RunMetrics.Timer pipelineTimer = metrics.start("pipeline");
+            try {
+                deletedCount += new TabPipeline(driver, props, metrics, controller, testEmail, givenUp).run();
+            } catch (IOException | RuntimeException e) {
+                // The single-tab loop below still gets everything the pipeline did not
+                logger.warn("Tab pipeline stopped: {}", e.getMessage());
+            } finally {
+                pipelineTimer.stop();
+            }
+        }
+        
+        // Sweeps up whatever the bulk mode or the tab pipeline left behind, or does all the work when they are off
+        RunMetrics.Timer loopTimer = metrics.start("delete.loop");
+        try {
+            return processUnreadEmail();
+        } finally {
+            loopTimer.stop();
+        }
+    }
+    
+    private List<DeletionRule> loadRules() {
+        try {
+            return DeletionRule.load(props);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load deletion rules", e);
+        }
+    }
+    
+    private boolean runRules(List<DeletionRule> rules) {
+        logger.info("Running {} deletion rules", rules.size());
+        SearchBulkDeleter deleter = new SearchBulkDeleter(driver, waits, props.getProperty("gmail.base.url", DEFAULT_BASE_URL));
+        boolean success = true;
+        for (RuleRunner.Result result : RuleRunner.fromProperties(deleter, metrics, props).run(rules)) {
+            if (result.getRule().isDryRun() && result.getCount() != null) {
+                logger.info("Rule {}: would delete {} conversations", result.getRule().getName(), result.getCount());
+            } else {
+                logger.info("Rule {}: {} after {} searches", result.getRule().getName(), result.getOutcome(), result.getPasses());
+            }
+            success &= result.isSuccess();
+        }
+        return success;
+    }
+    
+    private void login() throws InterruptedException {
+        logger.info("Starting login process...");
+        
+        // Use direct Google Accounts URL instead of Gmail
+        driver.get("https://accounts.google.com/signin/v2/identifier?service=mail");
+        
+        boolean loginCompleted = false;
+        int loginAttempts = 0;
+        int maxLoginAttempts = 3;
+        
+        while (!loginCompleted && loginAttempts < maxLoginAttempts) {
+            loginAttempts++;
+            logger.info("Login attempt {}", loginAttempts);
+            
+            try {
+                // Check if we're on the email input page
+                WebElement emailInput = waits.clickable(WaitEngine.Phase.LOGIN,
+                    By.cssSelector("#identifierId, input[type='email']"));
+                typeSlowly(emailInput, testEmail);
+                waits.pace(WaitEngine.Phase.LOGIN);
+                
+                WebElement nextButton = waits.clickable(WaitEngine.Phase.LOGIN,
+                    By.cssSelector("#identifierNext button, button[type='submit']"));
+                ((org.openqa.selenium.JavascriptExecutor) driver).executeScript("arguments[0].click();", nextButton);
+                
+                // Wait for and enter password
+                WebElement passwordInput = waits.clickable(WaitEngine.Phase.LOGIN,
+                    By.cssSelector("input[type='password']"));
+                typeSlowly(passwordInput, testPassword);
+                waits.pace(WaitEngine.Phase.LOGIN);
+                
+                WebElement passwordNextButton = waits.clickable(WaitEngine.Phase.LOGIN,
+                    By.cssSelector("#passwordNext button, button[type='submit']"));
+                long passwordSubmitted = readiness.mark();
+                ((org.openqa.selenium.JavascriptExecutor) driver).executeScript("arguments[0].click();", passwordNextButton);
+                
+                // The password step is done once Google sets the session or its input has gone away
+                waits.until(WaitEngine.Phase.LOGIN, ExpectedConditions.or(
+                    readiness.endpointResponded(SIGNED_IN, passwordSubmitted),
+                    ExpectedConditions.invisibilityOf(passwordInput)));
+                
+                // Try to access inbox directly
+                driver.get("https://mail.google.com/mail/u/0/#inbox");
+                waitForInboxOrWorkspace();
+                
+                // Check if we landed on workspace page
+                if (driver.getCurrentUrl().contains("workspace.google.com")) {
+                    logger.info("Detected workspace landing page, attempting direct Gmail access...");
+                    // Try accessing Gmail directly with a different URL
+                    driver.get("https://mail.google.com/mail/u/0");
+                    waitForInboxOrWorkspace();
+                    
+                    // If still on workspace, try finding and clicking Gmail-related buttons
+                    if (driver.getCurrentUrl().contains("workspace.google.com")) {
+                        List<WebElement> possibleButtons = driver.findElements(
+                            By.cssSelector("a[href*='mail.google.com'], a[data-action='sign in'], .button-primary"));
+                        
+                        for (WebElement button : possibleButtons) {
+                            try {
+                                String text = button.getText().toLowerCase();
+                                String href = button.getAttribute("href");
+                                
+                                if ((text.contains("gmail") || text.contains("sign in") || text.contains("email")) ||
+                                    (href != null && href.contains("mail.google.com"))) {
+                                    ((org.openqa.selenium.JavascriptExecutor) driver).executeScript(
+                                        "arguments[0].click();", button);
+                                    break;
+                                }
+                            } catch (Exception e) {
+                                continue;
+                            }
+                        }
+                    }
+                }
+                
+                // Verify we're actually in Gmail
+                waits.until(WaitEngine.Phase.INBOX, ExpectedConditions.or(
+                    ExpectedConditions.presenceOfElementLocated(By.cssSelector("div[role='main']")),
+                    ExpectedConditions.presenceOfElementLocated(By.cssSelector(".aeH")),
+                    ExpectedConditions.presenceOfElementLocated(By.cssSelector(".ain"))
+                ));
+                
+                loginCompleted = true;
+                logger.info("Successfully logged in and accessed inbox");
+                
+            } catch (Exception e) {
+                logger.warn("Login attempt {} failed: {}", loginAttempts, e.getMessage());
+                if (loginAttempts >= maxLoginAttempts) {
+                    throw new RuntimeException("Failed to complete login after " + maxLoginAttempts + " attempts", e);
+                }
+                // Start over from the beginning
+                driver.get("https://accounts.google.com/signin/v2/identifier?service=mail");
+            }
+        }
+        
+        if (!loginCompleted) {
+            throw new RuntimeException("Failed to complete login process");
+        }
+        
+        logger.info("Login process completed");
+    }
+    
+    private void waitForInboxOrWorkspace() {
+        waits.tryUntil(WaitEngine.Phase.INBOX, ExpectedConditions.or(
+            ExpectedConditions.presenceOfElementLocated(By.cssSelector("div[role='main']")),
+            ExpectedConditions.urlContains("workspace.google.com")
+        ));
+    }
+    
+    private void handleSecurityPrompts() throws InterruptedException {
+        logger.info("Checking for security prompts...");
+        
+        try {
+            By notNowLocator = By.cssSelector("button[jsname='b6kHab']");
+            By skipLocator = By.cssSelector("[data-dismiss='acct-dismiss']");
+            By mainLocator = By.cssSelector("div[role='main']");
+            
+            // Each prompt is dismissed as soon as it shows up; the inbox appearing means there are none left
+            for (int prompt = 0; prompt < 2; prompt++) {
+                boolean promptShown = waits.tryUntil(WaitEngine.Phase.PROMPTS, ExpectedConditions.or(
+                    ExpectedConditions.elementToBeClickable(notNowLocator),
+                    ExpectedConditions.elementToBeClickable(skipLocator),
+                    ExpectedConditions.presenceOfElementLocated(mainLocator)
+                )).orElse(false);
+                if (!promptShown || !driver.findElements(mainLocator).isEmpty()) {
+                    break;
+                }
+                
+                List<WebElement> notNowButtons = driver.findElements(notNowLocator);
+                List<WebElement> skipButtons = driver.findElements(skipLocator);
+                WebElement promptButton;
+                if (!notNowButtons.isEmpty()) {
+                    logger.info("Found 'Sign in faster' prompt, clicking 'Not now'");
+                    promptButton = notNowButtons.get(0);
+                } else if (!skipButtons.isEmpty()) {
+                    logger.info("Found 'Protect your account' prompt, clicking skip");
+                    promptButton = skipButtons.get(0);
+                } else {
+                    break;
+                }
+                ((org.openqa.selenium.JavascriptExecutor) driver).executeScript("arguments[0].click();", promptButton);
+                waits.tryUntil(WaitEngine.Phase.PROMPTS, ExpectedConditions.stalenessOf(promptButton));
+            }
+            
+            logger.info("Navigating to inbox after handling prompts...");
+            driver.get("https://mail.google.com/mail/u/0/#inbox");
+            
+            int maxAttempts = 3;
+            int attempt = 0;
+            boolean inboxLoaded = false;
+            
+            while (!inboxLoaded && attempt < maxAttempts) {
+                attempt++;
+                try {
+                    waits.present(WaitEngine.Phase.INBOX, mainLocator);
+                    
+                    // Usable once the message list container is there and Gmail's requests have settled
+                    waits.usable(WaitEngine.Phase.INBOX, By.cssSelector(".AO"));
+                    
+                    inboxLoaded = true;
+                    logger.info("Successfully loaded to inbox after handling prompts");
+                } catch (Exception e) {
+                    logger.warn("Attempt {} to load inbox failed, retrying...", attempt);
+                    if (attempt < maxAttempts) {
+                        driver.get("https://mail.google.com/mail/u/0/#inbox");
+                    }
+                }
+            }
+            
+            if (!inboxLoaded) {
+                throw new RuntimeException("Failed to load inbox after handling security prompts");
+            }
+            
+        } catch (Exception e) {
+            logger.error("Error handling security prompts: {}", e.getMessage());
+            throw e;
+        }
+    }
+    
+    boolean processUnreadEmail() throws InterruptedException {
+        logger.info("Looking for unread emails...");
+        
+        try (CheckpointJournal journal = CheckpointJournal.open(props, testEmail, resumeJournal);
+             AuditLog audit = AuditLog.open(props, testEmail)) {
+            // A pass that gives up leaves its journal unfinished, which is only for the next process to resume
+            resumeJournal = false;
+            
+            // Walks the unread search results page by page; deleted rows are refilled in place by Gmail
+            InboxCursor cursor = new InboxCursor(props.getProperty("gmail.base.url", DEFAULT_BASE_URL),
+                props.getProperty("stream.query", "in:inbox is:unread"), givenUp);
+            
+            int processedCount = 0;
+            
+            // An interrupted earlier run left its progress in the journal
+            CheckpointJournal.Replay resumed = journal.getReplay();
+            if (resumed.isResumed()) {
+                processedCount = resumed.getDeleted();
+                deletedCount += resumed.getDeleted();
+                cursor.restore(resumed.getPage(), resumed.getSkippedThreadIds());
+                logger.info("Resuming interrupted run: {} emails already deleted in {} batches, {} unconfirmed, "
+                    + "continuing on result page {}", resumed.getDeleted(), resumed.getBatches(), resumed.getInDoubt(),
+                    resumed.getPage());
+            }
+            openPage(cursor);
+            
+            int failedBatches = 0;
+            int maxRetries = 3;
+            boolean listReady = false;
+            boolean batchAttempted = false;
+            
+            while (failedBatches < maxRetries) {
+                try {
+                    // The controller stretches or shrinks the gap between batches as Gmail keeps up or pushes back
+                    if (batchAttempted) {
+                        controller.pace();
+                    }
+                    
+                    // Skipped when the last confirmation already saw the next rows arrive
+                    if (!listReady) {
+                        waits.tryUntil(WaitEngine.Phase.RECHECK, WaitEngine.listReady(cursor.exclusions()));
+                    }
+                    listReady = false;
+                    
+                    RunMetrics.Timer batchTimer = metrics.start("batch");
+                    RunMetrics.Timer selectionTimer = metrics.start("selection");
+                    try {
+                        
+                        // One script scans and selects up to a batch of rows; per-row clicking is only the fallback
+                        BulkSelector.Result bulkResult = null;
+                        try {
+                            bulkResult = bulkSelector.selectUnreadRows(cursor.exclusions(), controller.getBatchSize());
+                        } catch (Exception e) {
+                            logger.warn("Bulk selection failed, falling back to per-row selection: {}", e.getMessage());
+                        }
+                        
+                        int unreadCount;
+                        if (bulkResult != null) {
+                            unreadCount = bulkResult.getTotal();
+                        } else {
+                            unreadCount = driver.findElements(By.cssSelector("tr.zE div[role='checkbox']")).size();
+                        }
+                        
+                        // The empty-list marker, or a list that stayed empty through the wait above, ends the run
+                        if (unreadCount == 0) {
+                            if (bulkResult != null && !bulkResult.isEmpty()) {
+                                logger.info("Message list stayed empty without Gmail's empty-list marker, treating it as done");
+                            }
+                            if (processedCount > 0) {
+                                logger.info("All unread emails have been deleted. Total deleted: {}", processedCount);
+                            } else {
+                                logger.info("No unread emails found in inbox");
+                            }
+                            batchTimer.stopAs("batch.skipped");
+                            journal.complete(processedCount);
+                            return true;
+                        }
+                        
+                        if (bulkResult != null && bulkResult.getSkipped() == unreadCount) {
+                            batchTimer.stopAs("batch.skipped");
+                            cursor.nextPage();
+                            logger.info("Only skipped emails left on this page, moving on to result page {}", cursor.getPage());
+                            openPage(cursor);
+                            continue;
+                        }
+                        
+                        logger.info("Found {} unread emails", unreadCount);
+                        
+                        // The snapshot of this iteration is what gets logged, verified and audited
+                        int selectedCount;
+                        List<String> threadIds = Collections.emptyList();
+                        List<InboxSnapshot.Row> selectedRows = Collections.emptyList();
+                        if (bulkResult != null && bulkResult.getSelected() > 0) {
+                            selectedCount = bulkResult.getSelected();
+                            threadIds = bulkResult.getThreadIds();
+                            selectedRows = bulkResult.getSnapshot().rows(threadIds);
+                            if (!bulkResult.getFailedRows().isEmpty()) {
+                                logger.warn("Could not select rows {}", bulkResult.getFailedRows());
+                            }
+                        } else {
+                            selectedCount = selectRowByRow(cursor.exclusions(), controller.getBatchSize());
+                            try {
+                                selectedRows = InboxSnapshot.take(driver).checked();
+                                threadIds = new ArrayList<>();
+                                for (InboxSnapshot.Row row : selectedRows) {
+                                    threadIds.add(row.getThreadId());
+                                }
+                            } catch (Exception e) {
+                                logger.warn("Could not read the selected rows: {}", e.getMessage());
+                            }
+                        }
+                        
+                        if (!selectedRows.isEmpty()) {
+                            logger.info("Last unread email title: {}", selectedRows.get(0).getSubject());
+                        }
+                        
+                        selectionTimer.stop();
+                        
+                        if (selectedCount == 0) {
+                            logger.warn("No emails were selected, retrying...");
+                            metrics.increment("batches.unselected", 1);
+                            failedBatches++;
+                            continue;
+                        }
+                        
+                        logger.info("Successfully selected {} emails", selectedCount);
+                        
+                        long batch = journal.begin(threadIds, selectedCount, cursor.getPage());
+                        batchAttempted = true;
+                        boolean deleteClicked = false;
+                        boolean observerArmed = false;
+                        RunMetrics.Timer deleteTimer = metrics.start("delete.click");
+                        
+                        try {
+                            // Watch the selected rows before deleting so the confirmation can't be missed or stale
+                            try {
+                                confirmer.arm();
+                                observerArmed = true;
+                            } catch (Exception e) {
+                                logger.warn("Could not arm deletion observer, falling back to polling: {}", e.getMessage());
+                            }
+                            
+                            waits.present(WaitEngine.Phase.DELETE, By.cssSelector("div[gh='mtb']"));
+                            
+                            try {
+                                WebElement deleteButton = waits.clickable(WaitEngine.Phase.DELETE,
+                                    By.cssSelector("[aria-label='Delete']"));
+                                ((org.openqa.selenium.JavascriptExecutor) driver)
+                                    .executeScript("arguments[0].scrollIntoView(true);", deleteButton);
+                                
+                                deleteButton.click();
+                                deleteClicked = true;
+                                logger.info("Successfully clicked delete button directly");
+                            } catch (Exception e) {
+                                logger.warn("Direct click failed, trying JavaScript click");
+                                
+                                List<WebElement> deleteButtons = driver.findElements(
+                                    By.cssSelector("[aria-label='Delete'], div[data-tooltip='Delete']"));
+                                
+                                if (!deleteButtons.isEmpty()) {
+                                    WebElement deleteButton = deleteButtons.get(0);
+                                    ((org.openqa.selenium.JavascriptExecutor) driver)
+                                        .executeScript("arguments[0].click();", deleteButton);
+                                    deleteClicked = true;
+                                    logger.info("Successfully clicked delete button using JavaScript");
+                                }
+                            }
+                            
+                            if (!deleteClicked) {
+                                WebElement inbox = driver.findElement(By.cssSelector("div[role='main']"));
+                                ((org.openqa.selenium.JavascriptExecutor) driver)
+                                    .executeScript("arguments[0].focus();", inbox);
+                                
+                                inbox.sendKeys("#");
+                                deleteClicked = true;
+                                logger.info("Successfully used keyboard shortcut to delete");
+                            }
+                            
+                            deleteTimer.stop();
+                            
+                            if (deleteClicked) {
+                                RunMetrics.Timer verificationTimer = metrics.start("verification");
+                                boolean deletionVerified = false;
+                                DeletionConfirmer.Result confirmation = null;
+                                BatchController.Signal congestion = null;
+                                String via = null;
+                                long verificationStart = System.nanoTime();
+                                
+                                if (observerArmed) {
+                                    try {
+                                        confirmation = confirmer.await(waits.timeout(WaitEngine.Phase.CONFIRM));
+                                        if (confirmation.isConfirmed()) {
+                                            deletionVerified = true;
+                                            via = confirmation.getVia();
+                                            controller.onConfirmed(confirmation.getElapsedMillis());
+                                            logger.info("Deletion confirmed via {} after {} ms", confirmation.getVia(),
+                                                confirmation.getElapsedMillis());
+                                        } else if (confirmation.isThrottled()) {
+                                            congestion = BatchController.Signal.THROTTLED;
+                                            logger.warn("Gmail rejected the delete: {}", confirmation.getToast());
+                                        } else {
+                                            logger.warn("Deletion observer gave up: {}", confirmation.getVia());
+                                        }
+                                    } catch (Exception e) {
+                                        logger.warn("Deletion observer failed: {}", e.getMessage());
+                                    }
+                                } else {
+                                    try {
+                                        WebElement confirmationMsg = waits.until(WaitEngine.Phase.CONFIRM, WaitEngine.trashToast());
+                                        if (confirmationMsg != null) {
+                                            deletionVerified = true;
+                                            via = "toast";
+                                            controller.onConfirmed((System.nanoTime() - verificationStart) / 1_000_000);
+                                            logger.info("Deletion confirmed via message");
+                                        }
+                                    } catch (Exception e) {
+                                        logger.warn("No confirmation message found");
+                                    }
+                                }
+                                
+                                if (!deletionVerified) {
+                                    boolean noneSelected = waits.tryUntil(WaitEngine.Phase.RECHECK,
+                                        InboxSnapshot.until("no selected rows", snapshot -> snapshot.checked().isEmpty()))
+                                        .isPresent();
+                                    
+                                    if (noneSelected) {
+                                        deletionVerified = true;
+                                        via = "unselected";
+                                        logger.info("Deletion confirmed - selected emails no longer present");
+                                        if (congestion == null) {
+                                            congestion = BatchController.Signal.MISSING_TOAST;
+                                        }
+                                    }
+                                }
+                                
+                                if (!deletionVerified) {
+                                    driver.navigate().refresh();
+                                    waits.present(WaitEngine.Phase.INBOX, By.cssSelector("div[role='main']"));
+                                    
+                                    boolean countDecreased = waits.tryUntil(WaitEngine.Phase.RECHECK,
+                                        WaitEngine.rowCountBelow(By.cssSelector("tr.zE div[role='checkbox']"),
+                                            unreadCount))
+                                        .isPresent();
+                                    
+                                    if (countDecreased) {
+                                        deletionVerified = true;
+                                        via = "count";
+                                        logger.info("Deletion confirmed - unread count decreased");
+                                        if (congestion == null) {
+                                            congestion = BatchController.Signal.MISSING_TOAST;
+                                        }
+                                    }
+                                }
+                                
+                                verificationTimer.stop();
+                                if (congestion != null || !deletionVerified) {
+                                    controller.onCongestion(congestion != null ? congestion : BatchController.Signal.TIMEOUT);
+                                }
+                                
+                                if (deletionVerified) {
+                                    processedCount += selectedCount;
+                                    deletedCount += selectedCount;
+                                    failedBatches = 0;
+                                    cursor.deleted(threadIds);
+                                    journal.deleted(batch);
+                                    audit.deleted(batch, via, selectedRows);
+                                    batchTimer.stop();
+                                    metrics.increment("batches.succeeded", 1);
+                                    metrics.increment("emails.deleted", selectedCount);
+                                    logger.info("Successfully moved {} emails to Trash", selectedCount);
+                                    
+                                    // Gmail refills the list in place, so the next batch works on the live page.
+                                    // The rows it loaded while the delete was in flight come back with the confirmation.
+                                    if (confirmation != null && confirmation.isConfirmed()) {
+                                        if (confirmation.isInboxEmpty()) {
+                                            logger.info("All unread emails have been deleted. Total deleted: {}", processedCount);
+                                            journal.complete(processedCount);
+                                            return true;
+                                        }
+                                        Set<String> exclusions = cursor.exclusions();
+                                        listReady = confirmation.getNextThreadIds().stream().anyMatch(id -> !exclusions.contains(id));
+                                    }
+                                    continue;
+                                }
+                            }
+                            
+                            logger.error("Failed to verify deletion after clicking delete button");
+                            metrics.increment("batches.failed", 1);
+                            cursor.failed(threadIds);
+                            journal.failed(batch);
+                            failedBatches++;
+                            refreshInbox();
+                            
+                        } catch (Exception e) {
+                            logger.error("Error during deletion process: {}", e.getMessage());
+                            controller.onCongestion(BatchController.Signal.ERROR);
+                            metrics.increment("batches.failed", 1);
+                            cursor.failed(threadIds);
+                            journal.failed(batch);
+                            failedBatches++;
+                            refreshInbox();
+                        } finally {
+                            deleteTimer.stop();
+                        }
+                    } finally {
+                        // Batches that end in a failure or an exception are timed too, under their own phase
+                        selectionTimer.stop();
+                        batchTimer.stopAs("batch.failed");
+                    }
+                    
+                } catch (Exception e) {
+                    logger.error("Error during email processing loop: {}", e.getMessage());
+                    failedBatches++;
+                }
+            }
+            
+            logger.warn("Giving up after {} failed batches in a row. Total deleted: {}", maxRetries, processedCount);
+            return processedCount > 0;
+            
+        } catch (Exception e) {
+            logger.error("Failed to process unread emails: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    private void openPage(InboxCursor cursor) {
+        driver.get(cursor.pageUrl());
+        waits.until(WaitEngine.Phase.INBOX, WaitEngine.documentReady());
+        // A hash navigation never reloads the document, so the fetch of the new view is what to wait for
+        waits.usable(WaitEngine.Phase.INBOX, By.cssSelector("div[role='main']"));
+    }
+    
+    /**
+     * Clicks the unread rows one at a time, honouring the same exclusions and batch limit as
+     * the bulk selection, and returns how many ended up checked.
+     */
+    private int selectRowByRow(Set<String> excluded, int maxRows) {
+        List<WebElement> rows = driver.findElements(By.cssSelector("tr.zE"));
+        List<InboxSnapshot.Row> unread = InboxSnapshot.take(driver).unread();
+        if (unread.size() != rows.size()) {
+            // The list changed between the two reads; the next batch starts over on a settled list
+            logger.warn("Message list changed while selecting row by row, retrying");
+            return 0;
+        }
+        
+        int selected = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                WebElement checkbox = rows.get(i).findElement(By.cssSelector("div[role='checkbox']"));
+                boolean wanted = selected < maxRows && !excluded.contains(unread.get(i).getThreadId());
+                if (wanted == "true".equals(checkbox.getAttribute("aria-checked"))) {
+                    selected += wanted ? 1 : 0;
+                    continue;
+                }
+                
+                ((org.openqa.selenium.JavascriptExecutor) driver)
+                    .executeScript("arguments[0].scrollIntoView(true);", checkbox);
+                
+                ((org.openqa.selenium.JavascriptExecutor) driver)
+                    .executeScript("arguments[0].click();", checkbox);
+                
+                boolean settled = waits.tryUntil(WaitEngine.Phase.SELECTION,
+                    ExpectedConditions.attributeToBe(checkbox, "aria-checked", String.valueOf(wanted))).orElse(false);
+                if (settled && wanted) {
+                    selected++;
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to click checkbox, trying next one");
+                continue;
+            }
+        }
+        
+        return selected;
+    }
+    
+    private void refreshInbox() {
+        RunMetrics.Timer timer = metrics.start("refresh");
+        try {
+            driver.navigate().refresh();
+            waits.tryUntil(WaitEngine.Phase.INBOX, ExpectedConditions.presenceOfElementLocated(
+                By.cssSelector("div[role='main']")));
+        } finally {
+            timer.stop();
+        }
+    }
+    
+    private void typeSlowly(WebElement element, String text) throws InterruptedException {
+        ((org.openqa.selenium.JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+        
+        element.clear();
+        element.click();
+        
+        // Keystroke pacing is governed by the LOGIN politeness floor; with the floor disabled the text is sent at once
+        if (!waits.isPolite(WaitEngine.Phase.LOGIN)) {
+            element.sendKeys(text);
+            return;
+        }
+        for (char c : text.toCharArray()) {
+            element.sendKeys(String.valueOf(c));
+            waits.pace(WaitEngine.Phase.LOGIN);
+        }
+    }
+}
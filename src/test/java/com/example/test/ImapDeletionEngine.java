@@ -0,0 +1,228 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.eclipse.angus.mail.iap.Argument;
+import org.eclipse.angus.mail.iap.ProtocolException;
+import org.eclipse.angus.mail.iap.Response;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.eclipse.angus.mail.imap.protocol.BASE64MailboxEncoder;
+import org.eclipse.angus.mail.imap.protocol.IMAPProtocol;
+import org.eclipse.angus.mail.imap.protocol.IMAPResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+
+/**
+ * Deletes unread mail over IMAP instead of the web UI: one UID SEARCH UNSEEN, then UID MOVE
+ * to Trash (or UID COPY + UID STORE \Deleted + UID EXPUNGE when the server lacks MOVE) over
+ * compressed UID ranges of up to imap.batch.size messages per command. The store connection
+ * is opened once and reused for every call until the engine is closed.
+ *
+ * Without MOVE the UIDPLUS extension is needed as well: a plain EXPUNGE would also remove
+ * every message someone else had already flagged \Deleted in the folder. Without UIDPLUS the
+ * engine only falls back to a plain EXPUNGE when no such message exists, and refuses otherwise.
+ *
+ * Configured from test.properties:
+ *   imap.host           default imap.gmail.com
+ *   imap.port           default 993
+ *   imap.ssl            default true
+ *   imap.folder         folder to clean (default INBOX)
+ *   imap.trash.folder   destination (default [Gmail]/Trash); empty expunges permanently
+ *   imap.batch.size     UIDs per MOVE/STORE command (default 5000)
+ *
+ * Gmail requires an app password for IMAP; it is read from gmail.test.password.
+ */
+public class ImapDeletionEngine implements MailDeletionEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ImapDeletionEngine.class);
+
+    private final String host;
+    private final int port;
+    private final boolean ssl;
+    private final Account account;
+    private final String folderName;
+    private final String trashFolder;
+    private final int batchSize;
+
+    private IMAPStore store;
+    private IMAPFolder folder;
+
+    public ImapDeletionEngine(String host, int port, boolean ssl, Account account,
+                              String folderName, String trashFolder, int batchSize) {
+        this.host = host;
+        this.port = port;
+        this.ssl = ssl;
+        this.account = account;
+        this.folderName = folderName;
+        this.trashFolder = trashFolder == null || trashFolder.isEmpty() ? null : trashFolder;
+        this.batchSize = batchSize;
+    }
+
+    public static ImapDeletionEngine fromProperties(Properties props, Account account) {
+        return new ImapDeletionEngine(
+            props.getProperty("imap.host", "imap.gmail.com"),
+            Integer.parseInt(props.getProperty("imap.port", "993").trim()),
+            Boolean.parseBoolean(props.getProperty("imap.ssl", "true")),
+            account,
+            props.getProperty("imap.folder", "INBOX"),
+            props.getProperty("imap.trash.folder", "[Gmail]/Trash"),
+            Integer.parseInt(props.getProperty("imap.batch.size", "5000").trim()));
+    }
+
+    @Override
+    public int deleteUnread() {
+        long start = System.nanoTime();
+        try {
+            IMAPFolder inbox = openFolder();
+            long[] uids = (long[]) inbox.doCommand(protocol -> search(protocol, "UNSEEN"));
+            if (uids.length == 0) {
+                logger.info("No unread messages in {}", folderName);
+                return 0;
+            }
+            logger.info("Found {} unread messages in {}", uids.length, folderName);
+
+            boolean move = trashFolder != null && supports("MOVE");
+            boolean uidExpunge = supports("UIDPLUS");
+            if (!move && !uidExpunge) {
+                long[] flagged = (long[]) inbox.doCommand(protocol -> search(protocol, "DELETED"));
+                if (flagged.length > 0) {
+                    throw new IllegalStateException(folderName + " already has " + flagged.length
+                        + " messages flagged \\Deleted, which a plain EXPUNGE would remove as well, and "
+                        + host + " supports neither MOVE nor UIDPLUS");
+                }
+            }
+            for (int from = 0; from < uids.length; from += batchSize) {
+                int to = Math.min(from + batchSize, uids.length);
+                String uidSet = toUidSet(uids, from, to);
+                inbox.doCommand(protocol -> {
+                    if (move) {
+                        run(protocol, "UID MOVE", new Argument().writeAtom(uidSet).writeString(encode(trashFolder)));
+                    } else {
+                        if (trashFolder != null) {
+                            run(protocol, "UID COPY", new Argument().writeAtom(uidSet).writeString(encode(trashFolder)));
+                        }
+                        run(protocol, "UID STORE",
+                            new Argument().writeAtom(uidSet).writeAtom("+FLAGS.SILENT").writeAtom("(\\Deleted)"));
+                        if (uidExpunge) {
+                            // Only the UIDs of this batch, never other messages flagged \Deleted
+                            run(protocol, "UID EXPUNGE", new Argument().writeAtom(uidSet));
+                        }
+                    }
+                    return null;
+                });
+                logger.debug("Deleted UIDs {}..{} ({} messages)", uids[from], uids[to - 1], to - from);
+            }
+            if (!move && !uidExpunge) {
+                inbox.doCommand(protocol -> run(protocol, "EXPUNGE", null));
+            }
+
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            logger.info("Deleted {} messages {} in {} ms ({} messages/s)", uids.length,
+                trashFolder != null ? "to " + trashFolder : "permanently", millis, uids.length * 1000L / millis);
+            return uids.length;
+        } catch (MessagingException e) {
+            throw new RuntimeException("IMAP deletion failed for " + account, e);
+        }
+    }
+
+    private IMAPFolder openFolder() throws MessagingException {
+        if (store == null || !store.isConnected()) {
+            Properties sessionProps = new Properties();
+            String protocol = ssl ? "imaps" : "imap";
+            sessionProps.setProperty("mail.store.protocol", protocol);
+            sessionProps.setProperty("mail." + protocol + ".host", host);
+            sessionProps.setProperty("mail." + protocol + ".port", String.valueOf(port));
+            store = (IMAPStore) Session.getInstance(sessionProps).getStore(protocol);
+            store.connect(host, port, account.getEmail(), account.getPassword());
+            logger.info("Connected to {}:{} as {}", host, port, account);
+            folder = null;
+        }
+        if (folder == null || !folder.isOpen()) {
+            folder = (IMAPFolder) store.getFolder(folderName);
+            folder.open(Folder.READ_WRITE);
+        }
+        return folder;
+    }
+
+    /**
+     * Whether the server advertises an IMAP extension.
+     */
+    boolean supports(String capability) throws MessagingException {
+        return store.hasCapability(capability);
+    }
+
+    private static long[] search(IMAPProtocol protocol, String criteria) throws ProtocolException {
+        Response[] responses = protocol.command("UID SEARCH " + criteria, null);
+        List<Long> uids = new ArrayList<>();
+        for (Response response : responses) {
+            if (response instanceof IMAPResponse && ((IMAPResponse) response).keyEquals("SEARCH")) {
+                long uid;
+                while ((uid = response.readLong()) != -1) {
+                    uids.add(uid);
+                }
+            }
+        }
+        protocol.notifyResponseHandlers(responses);
+        protocol.handleResult(responses[responses.length - 1]);
+        return uids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static Object run(IMAPProtocol protocol, String command, Argument args) throws ProtocolException {
+        Response[] responses = protocol.command(command, args);
+        protocol.notifyResponseHandlers(responses);
+        protocol.handleResult(responses[responses.length - 1]);
+        return null;
+    }
+
+    private static String encode(String mailbox) {
+        return BASE64MailboxEncoder.encode(mailbox);
+    }
+
+    /**
+     * Compresses sorted UIDs into an IMAP sequence set, e.g. 1,2,3,7,8 becomes "1:3,7:8".
+     */
+    static String toUidSet(long[] uids, int from, int to) {
+        StringBuilder set = new StringBuilder();
+        int i = from;
+        while (i < to) {
+            int j = i;
+            while (j + 1 < to && uids[j + 1] == uids[j] + 1) {
+                j++;
+            }
+            if (set.length() > 0) {
+                set.append(',');
+            }
+            set.append(uids[i]);
+            if (j > i) {
+                set.append(':').append(uids[j]);
+            }
+            i = j + 1;
+        }
+        return set.toString();
+    }
+
+    @Override
+    public String getName() {
+        return "imap";
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (folder != null && folder.isOpen()) {
+                folder.close(false);
+            }
+            if (store != null) {
+                store.close();
+            }
+        } catch (MessagingException e) {
+            logger.warn("Failed to close IMAP connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Runs the IMAP engine against an embedded GreenMail server, so it needs no network.
+ */
+public class ImapDeletionEngineTest {
+    private static final Logger logger = LoggerFactory.getLogger(ImapDeletionEngineTest.class);
+    private static final String EMAIL = "cleanup@example.com";
+    private static final String PASSWORD = "secret";
+
+    private GreenMail greenMail;
+    private GreenMailUser user;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        greenMail = new GreenMail(ServerSetupTest.IMAP.dynamicPort());
+        greenMail.start();
+        user = greenMail.setUser(EMAIL, EMAIL, PASSWORD);
+        greenMail.getManagers().getImapHostManager().createMailbox(user, "Trash");
+    }
+
+    @Test
+    public void movesAllUnreadMessagesToTrashAndKeepsReadOnes() throws Exception {
+        deliver(2000);
+        markFirstAsSeen(25);
+
+        try (ImapDeletionEngine engine = engine("Trash", 500)) {
+            long start = System.nanoTime();
+            int deleted = engine.deleteUnread();
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            logger.info("Deleted {} messages in {} ms ({} messages/s)", deleted, millis, deleted * 1000L / millis);
+
+            Assert.assertEquals(deleted, 1975);
+            Assert.assertEquals(count("INBOX"), 25, "read messages must stay in the inbox");
+            Assert.assertEquals(count("Trash"), 1975);
+
+            // The second pass reuses the open connection and finds nothing left to do
+            Assert.assertEquals(engine.deleteUnread(), 0);
+        }
+    }
+
+    @Test
+    public void expungesWhenNoTrashFolderIsConfigured() throws Exception {
+        deliver(120);
+
+        try (ImapDeletionEngine engine = engine("", 50)) {
+            Assert.assertEquals(engine.deleteUnread(), 120);
+        }
+        Assert.assertEquals(count("INBOX"), 0);
+        Assert.assertEquals(count("Trash"), 0);
+    }
+
+    @Test
+    public void copiesAndExpungesOnlyItsOwnUidsWithoutMove() throws Exception {
+        deliver(300);
+        markFirstAsSeen(10);
+        // Flagged by another client and waiting for its own expunge, which this run must not do for it
+        flagFirstAsDeleted(3);
+
+        try (ImapDeletionEngine engine = engineWithout("Trash", 100, "MOVE")) {
+            Assert.assertEquals(engine.deleteUnread(), 290);
+        }
+        Assert.assertEquals(count("Trash"), 290);
+        Assert.assertEquals(count("INBOX"), 10, "read messages, flagged or not, must stay in the inbox");
+    }
+
+    @Test
+    public void refusesPlainExpungeWhenOtherMessagesAreFlagged() throws Exception {
+        deliver(20);
+        markFirstAsSeen(5);
+        flagFirstAsDeleted(1);
+
+        try (ImapDeletionEngine engine = engineWithout("Trash", 100, "MOVE", "UIDPLUS")) {
+            Assert.assertThrows(IllegalStateException.class, engine::deleteUnread);
+        }
+        Assert.assertEquals(count("INBOX"), 20, "nothing may be touched when the expunge is refused");
+        Assert.assertEquals(count("Trash"), 0);
+    }
+
+    @Test
+    public void compressesConsecutiveUidsIntoRanges() {
+        long[] uids = {1, 2, 3, 7, 9, 10};
+
+        Assert.assertEquals(ImapDeletionEngine.toUidSet(uids, 0, uids.length), "1:3,7,9:10");
+        Assert.assertEquals(ImapDeletionEngine.toUidSet(uids, 3, 5), "7,9");
+    }
+
+    private ImapDeletionEngine engine(String trashFolder, int batchSize) {
+        ServerSetup imap = greenMail.getImap().getServerSetup();
+        Properties props = new Properties();
+        props.setProperty("imap.host", imap.getBindAddress());
+        props.setProperty("imap.port", String.valueOf(greenMail.getImap().getPort()));
+        props.setProperty("imap.ssl", "false");
+        props.setProperty("imap.trash.folder", trashFolder);
+        props.setProperty("imap.batch.size", String.valueOf(batchSize));
+        return ImapDeletionEngine.fromProperties(props, new Account(EMAIL, PASSWORD));
+    }
+
+    /**
+     * An engine that behaves as if the server did not advertise the given extensions.
+     */
+    private ImapDeletionEngine engineWithout(String trashFolder, int batchSize, String... capabilities) {
+        List<String> hidden = Arrays.asList(capabilities);
+        return new ImapDeletionEngine(greenMail.getImap().getServerSetup().getBindAddress(), greenMail.getImap().getPort(),
+                false, new Account(EMAIL, PASSWORD), "INBOX", trashFolder, batchSize) {
+            @Override
+            boolean supports(String capability) throws MessagingException {
+                return !hidden.contains(capability) && super.supports(capability);
+            }
+        };
+    }
+
+    private void deliver(int messages) throws Exception {
+        for (int i = 1; i <= messages; i++) {
+            MimeMessage message = GreenMailUtil.createTextEmail(EMAIL, "sender@example.com",
+                "Unread message " + i, "Body " + i, ServerSetupTest.SMTP);
+            message.saveChanges();
+            user.deliver(message);
+        }
+    }
+
+    private void markFirstAsSeen(int messages) throws Exception {
+        try (Store store = connect(); Folder inbox = store.getFolder("INBOX")) {
+            inbox.open(Folder.READ_WRITE);
+            for (Message message : inbox.getMessages(1, messages)) {
+                message.setFlag(Flags.Flag.SEEN, true);
+            }
+        }
+    }
+
+    private void flagFirstAsDeleted(int messages) throws Exception {
+        try (Store store = connect()) {
+            Folder inbox = store.getFolder("INBOX");
+            inbox.open(Folder.READ_WRITE);
+            for (Message message : inbox.getMessages(1, messages)) {
+                message.setFlag(Flags.Flag.DELETED, true);
+            }
+            // Folder.close() would expunge them right away
+            inbox.close(false);
+        }
+    }
+
+    private int count(String folderName) throws Exception {
+        try (Store store = connect(); Folder folder = store.getFolder(folderName)) {
+            folder.open(Folder.READ_ONLY);
+            return folder.getMessageCount();
+        }
+    }
+
+    private Store connect() throws Exception {
+        Store store = greenMail.getImap().createSession().getStore("imap");
+        store.connect(EMAIL, PASSWORD);
+        return store;
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        if (greenMail != null) {
+            greenMail.stop();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Position of the streaming deletion loop in a Gmail search result. Deleting rows makes
+ * Gmail pull later results forward, so the cursor stays on a page while it still yields
+ * work and only moves to the next page (#search/QUERY/pN) once every row left on it has
+ * been given up on. Pages behind the cursor are never scanned again.
+ *
+ * Only a bounded set of thread ids is kept: rows given up on after repeated failures, and
+ * the last deleted batch, whose rows can linger in the list for a moment after the delete.
+ */
+public class InboxCursor {
+    static final int MAX_ATTEMPTS = 2;
+
+    private final String baseUrl;
+    private final String query;
+    private final Set<String> skipped;
+    private final Set<String> lastBatch = new LinkedHashSet<>();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private int page = 1;
+
+    public InboxCursor(String baseUrl, String query) {
+        this(baseUrl, query, new LinkedHashSet<>());
+    }
+
+    /**
+     * Records given-up threads in the caller's set, so they stay skipped across cursors.
+     */
+    public InboxCursor(String baseUrl, String query, Set<String> skipped) {
+        this.baseUrl = baseUrl;
+        this.query = query;
+        this.skipped = skipped;
+    }
+
+    /**
+     * Continues from where an interrupted run stopped, as replayed from its checkpoint journal.
+     */
+    public void restore(int page, Collection<String> skippedThreadIds) {
+        this.page = Math.max(1, page);
+        skipped.addAll(skippedThreadIds);
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public String pageUrl() {
+        String url = baseUrl + "#search/" + URLEncoder.encode(query, StandardCharsets.UTF_8);
+        return page > 1 ? url + "/p" + page : url;
+    }
+
+    /**
+     * Thread ids the next selection must leave alone.
+     */
+    public Set<String> exclusions() {
+        Set<String> exclusions = new LinkedHashSet<>(skipped);
+        exclusions.addAll(lastBatch);
+        return exclusions;
+    }
+
+    public void deleted(Collection<String> threadIds) {
+        lastBatch.clear();
+        lastBatch.addAll(threadIds);
+        for (String threadId : threadIds) {
+            attempts.remove(threadId);
+        }
+    }
+
+    /**
+     * Records a batch that could not be confirmed. Rows that keep failing are skipped from
+     * then on, so the cursor can move past them instead of retrying forever.
+     */
+    public void failed(Collection<String> threadIds) {
+        lastBatch.clear();
+        for (String threadId : threadIds) {
+            if (attempts.merge(threadId, 1, Integer::sum) >= MAX_ATTEMPTS) {
+                attempts.remove(threadId);
+                skipped.add(threadId);
+            }
+        }
+    }
+
+    public int getSkippedCount() {
+        return skipped.size();
+    }
+
+    public void nextPage() {
+        page++;
+        lastBatch.clear();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class InboxCursorTest {
+    private static final String BASE_URL = "https://mail.google.com/mail/u/0/";
+
+    @Test
+    public void buildsGmailSearchPageUrls() {
+        InboxCursor cursor = new InboxCursor(BASE_URL, "in:inbox is:unread");
+
+        Assert.assertEquals(cursor.pageUrl(), BASE_URL + "#search/in%3Ainbox+is%3Aunread");
+        cursor.nextPage();
+        cursor.nextPage();
+        Assert.assertEquals(cursor.getPage(), 3);
+        Assert.assertEquals(cursor.pageUrl(), BASE_URL + "#search/in%3Ainbox+is%3Aunread/p3");
+    }
+
+    @Test
+    public void excludesOnlyTheLastDeletedBatch() {
+        InboxCursor cursor = new InboxCursor(BASE_URL, "is:unread");
+
+        cursor.deleted(Arrays.asList("a", "b"));
+        Assert.assertEquals(cursor.exclusions(), new HashSet<>(Arrays.asList("a", "b")));
+
+        cursor.deleted(Collections.singletonList("c"));
+        Assert.assertEquals(cursor.exclusions(), Collections.singleton("c"));
+    }
+
+    @Test
+    public void skipsRowsThatKeepFailing() {
+        InboxCursor cursor = new InboxCursor(BASE_URL, "is:unread");
+
+        cursor.failed(Arrays.asList("a", "b"));
+        Assert.assertTrue(cursor.exclusions().isEmpty(), "a single failure should be retried");
+
+        cursor.failed(Collections.singletonList("a"));
+        Assert.assertEquals(cursor.exclusions(), Collections.singleton("a"));
+        Assert.assertEquals(cursor.getSkippedCount(), 1);
+
+        // Skipped rows stay excluded on later pages, the last batch does not
+        cursor.deleted(Collections.singletonList("c"));
+        cursor.nextPage();
+        Assert.assertEquals(cursor.exclusions(), Collections.singleton("a"));
+    }
+}
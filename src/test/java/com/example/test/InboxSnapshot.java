@@ -0,0 +1,160 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * What the message list showed at one moment, read by a single injected script: thread id,
+ * sender, subject, date, unread flag and checkbox state of every row. The deletion loop
+ * selects, logs, verifies and audits from the snapshot of the current iteration instead of
+ * looking rows up one element at a time.
+ */
+public class InboxSnapshot {
+    private final List<Row> rows;
+    private final boolean empty;
+
+    InboxSnapshot(List<Row> rows, boolean empty) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.empty = empty;
+    }
+
+    public static InboxSnapshot take(WebDriver driver) {
+        return from(((JavascriptExecutor) driver).executeScript(Scripts.bundle("snapshot-rows.js", "inbox-snapshot.js")));
+    }
+
+    @SuppressWarnings("unchecked")
+    static InboxSnapshot from(Object raw) {
+        if (!(raw instanceof Map)) {
+            throw new IllegalStateException("Inbox snapshot script returned " + raw);
+        }
+        Map<String, Object> map = (Map<String, Object>) raw;
+        List<Row> rows = new ArrayList<>();
+        for (Object entry : (List<Object>) map.get("rows")) {
+            Map<String, Object> row = (Map<String, Object>) entry;
+            rows.add(new Row(String.valueOf(row.get("threadId")), String.valueOf(row.get("sender")),
+                String.valueOf(row.get("subject")), String.valueOf(row.get("date")),
+                Boolean.TRUE.equals(row.get("unread")), Boolean.TRUE.equals(row.get("checked"))));
+        }
+        return new InboxSnapshot(rows, Boolean.TRUE.equals(map.get("empty")));
+    }
+
+    /**
+     * Holds with a fresh snapshot once it satisfies the predicate.
+     */
+    public static ExpectedCondition<InboxSnapshot> until(String description, Predicate<InboxSnapshot> predicate) {
+        return new ExpectedCondition<InboxSnapshot>() {
+            @Override
+            public InboxSnapshot apply(WebDriver driver) {
+                InboxSnapshot snapshot = take(driver);
+                return predicate.test(snapshot) ? snapshot : null;
+            }
+
+            @Override
+            public String toString() {
+                return description;
+            }
+        };
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    public List<Row> unread() {
+        return filter(Row::isUnread);
+    }
+
+    public List<Row> checked() {
+        return filter(Row::isChecked);
+    }
+
+    /**
+     * The rows of these threads, in list order.
+     */
+    public List<Row> rows(Collection<String> threadIds) {
+        Set<String> wanted = new HashSet<>(threadIds);
+        return filter(row -> wanted.contains(row.getThreadId()));
+    }
+
+    private List<Row> filter(Predicate<Row> predicate) {
+        List<Row> matching = new ArrayList<>();
+        for (Row row : rows) {
+            if (predicate.test(row)) {
+                matching.add(row);
+            }
+        }
+        return matching;
+    }
+
+    /** True when there are no rows and Gmail shows its empty-list marker. */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public static class Row {
+        private final String threadId;
+        private final String sender;
+        private final String subject;
+        private final String date;
+        private final boolean unread;
+        private final boolean checked;
+
+        Row(String threadId, String sender, String subject, String date, boolean unread, boolean checked) {
+            this.threadId = threadId;
+            this.sender = sender;
+            this.subject = subject;
+            this.date = date;
+            this.unread = unread;
+            this.checked = checked;
+        }
+
+        public String getThreadId() {
+            return threadId;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public boolean isUnread() {
+            return unread;
+        }
+
+        public boolean isChecked() {
+            return checked;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("threadId", threadId);
+            map.put("sender", sender);
+            map.put("subject", subject);
+            map.put("date", date);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return "'" + subject + "' from " + sender;
+        }
+    }
+}
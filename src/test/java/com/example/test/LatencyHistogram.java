@@ -0,0 +1,60 @@
+package com.example.test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records latency samples for one phase or command and summarises them as count, min, max,
+ * mean and p50/p95/p99. Samples are kept in full; a cleanup run produces at most a few
+ * hundred thousand of them, which is cheap enough to sort once at report time.
+ */
+public class LatencyHistogram {
+    private long[] samples = new long[64];
+    private int count;
+    private long total;
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        total += nanos;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds, or 0 when nothing was recorded.
+     */
+    public synchronized double percentileMillis(double percentile) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return rank(sorted, percentile);
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        map.put("count", count);
+        map.put("totalMs", total / 1_000_000.0);
+        map.put("minMs", count > 0 ? sorted[0] / 1_000_000.0 : 0);
+        map.put("meanMs", count > 0 ? total / 1_000_000.0 / count : 0);
+        map.put("p50Ms", rank(sorted, 50));
+        map.put("p95Ms", rank(sorted, 95));
+        map.put("p99Ms", rank(sorted, 99));
+        map.put("maxMs", count > 0 ? sorted[count - 1] / 1_000_000.0 : 0);
+        return map;
+    }
+
+    private static double rank(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.test;
+
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+
+    private static LatencyHistogram histogram(long... millis) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long sample : millis) {
+            histogram.record(sample * 1_000_000);
+        }
+        return histogram;
+    }
+
+    @Test
+    public void usesNearestRank() {
+        // Recorded out of order; ranks are taken from the sorted samples
+        LatencyHistogram histogram = histogram(70, 10, 100, 40, 20, 90, 30, 60, 50, 80);
+
+        Assert.assertEquals(histogram.percentileMillis(50), 50.0);
+        Assert.assertEquals(histogram.percentileMillis(95), 100.0, "rank 9.5 rounds up to the 10th sample");
+        Assert.assertEquals(histogram.percentileMillis(91), 100.0);
+        Assert.assertEquals(histogram.percentileMillis(90), 90.0);
+        Assert.assertEquals(histogram.percentileMillis(0), 10.0, "rank 0 maps to the smallest sample");
+        Assert.assertEquals(histogram.percentileMillis(100), 100.0);
+    }
+
+    @Test
+    public void summarisesSamples() {
+        LatencyHistogram histogram = histogram(3, 1, 2);
+        for (int i = 0; i < 100; i++) {
+            // Grows past the initial capacity
+            histogram.record(2_000_000);
+        }
+
+        Map<String, Object> map = histogram.toMap();
+        Assert.assertEquals(map.get("count"), 103);
+        Assert.assertEquals(map.get("minMs"), 1.0);
+        Assert.assertEquals(map.get("maxMs"), 3.0);
+        Assert.assertEquals((double) map.get("meanMs"), 2.0, 1e-9);
+        Assert.assertEquals(map.get("p99Ms"), 2.0);
+    }
+
+    @Test
+    public void reportsZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.percentileMillis(99), 0.0);
+        Assert.assertEquals(histogram.toMap().get("p50Ms"), 0.0);
+        Assert.assertEquals(histogram.toMap().get("count"), 0);
+    }
+}
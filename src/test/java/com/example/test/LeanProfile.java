@@ -0,0 +1,98 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A trimmed-down Chrome for headless automation hosts: headless with a fixed viewport,
+ * bounded disk cache and renderer memory, and images, fonts, media and analytics requests
+ * blocked through the DevTools Network domain before the first navigation.
+ *
+ * Configured from test.properties:
+ *   browser.profile                  "lean" to enable, anything else keeps the standard profile
+ *   browser.viewport                 window size as WIDTHxHEIGHT (default 1280x900)
+ *   browser.blocked.urls             comma separated CDP URL patterns, replaces the defaults
+ *   browser.disk.cache.mb            disk cache size (default 32)
+ *   browser.renderer.max.heap.mb     V8 old-space limit per renderer (default 512)
+ *   browser.renderer.process.limit   maximum renderer processes (default 2)
+ *
+ * Google may refuse to sign in a headless browser, so this profile is meant to be combined
+ * with a session cache that was signed in once with the standard profile.
+ */
+public final class LeanProfile {
+    private static final Logger logger = LoggerFactory.getLogger(LeanProfile.class);
+
+    static final List<String> DEFAULT_BLOCKED_URLS = Arrays.asList(
+        "*.png", "*.jpg", "*.jpeg", "*.gif", "*.webp", "*.svg", "*.ico",
+        "*.woff", "*.woff2", "*.ttf", "*.otf",
+        "*.mp3", "*.mp4", "*.webm", "*.ogg",
+        "*fonts.gstatic.com*", "*lh3.googleusercontent.com*",
+        "*google-analytics.com*", "*googletagmanager.com*", "*doubleclick.net*",
+        "*/gen_204*", "*/log?format=*");
+
+    private LeanProfile() {
+    }
+
+    public static boolean isEnabled(Properties props) {
+        return "lean".equalsIgnoreCase(props.getProperty("browser.profile", "standard").trim());
+    }
+
+    public static void applyOptions(ChromeOptions options, Properties props) {
+        String viewport = props.getProperty("browser.viewport", "1280x900").trim().replace('x', ',');
+        long cacheBytes = Long.parseLong(props.getProperty("browser.disk.cache.mb", "32").trim()) * 1024 * 1024;
+
+        options.addArguments("--headless=new");
+        options.addArguments("--window-size=" + viewport);
+        options.addArguments("--disk-cache-size=" + cacheBytes);
+        options.addArguments("--renderer-process-limit=" + props.getProperty("browser.renderer.process.limit", "2").trim());
+        options.addArguments("--js-flags=--max-old-space-size=" + props.getProperty("browser.renderer.max.heap.mb", "512").trim());
+        options.addArguments("--blink-settings=imagesEnabled=false");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--disable-background-networking");
+        options.addArguments("--disable-component-update");
+        options.addArguments("--mute-audio");
+    }
+
+    public static List<String> blockedUrls(Properties props) {
+        String configured = props.getProperty("browser.blocked.urls");
+        if (configured == null || configured.trim().isEmpty()) {
+            return DEFAULT_BLOCKED_URLS;
+        }
+        List<String> patterns = new ArrayList<>();
+        for (String pattern : configured.split(",")) {
+            if (!pattern.trim().isEmpty()) {
+                patterns.add(pattern.trim());
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Installs the URL block list on the driver's DevTools session. Uses raw CDP commands so
+     * it does not depend on the Chrome-version-specific devtools bindings.
+     */
+    public static void blockResources(WebDriver driver, Properties props) {
+        if (!(driver instanceof HasDevTools)) {
+            logger.warn("Driver has no DevTools support, resources will not be blocked");
+            return;
+        }
+        List<String> patterns = blockedUrls(props);
+        DevTools devTools = ((HasDevTools) driver).getDevTools();
+        devTools.createSessionIfThereIsNotOne(driver.getWindowHandle());
+        devTools.send(new Command<Void>("Network.enable", Map.of()));
+        devTools.send(new Command<Void>("Network.setBlockedURLs", Map.of("urls", patterns)));
+        logger.info("Blocking {} URL patterns in lean profile", patterns.size());
+    }
+}
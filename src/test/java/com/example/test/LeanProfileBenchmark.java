@@ -0,0 +1,132 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Compares page-ready time and per-process memory of the standard and lean browser profiles
+ * on a resource-heavy local fixture page. Part of the benchmark suite:
+ * mvn test -Dsuite.file=testng-benchmark.xml
+ */
+public class LeanProfileBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(LeanProfileBenchmark.class);
+    private static final int RUNS = 3;
+
+    private FixtureServer server;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        TestSupport.requireChrome("browser benchmarks");
+        server = FixtureServer.start();
+    }
+
+    @Test
+    public void compareStandardAndLeanProfiles() throws IOException {
+        Measurement standard = measure("standard");
+        Measurement lean = measure("lean");
+
+        logger.info("Profile   | page ready (ms) | load event (ms) | processes | RSS/process (MB) | RSS total (MB)");
+        logger.info(standard.toString());
+        logger.info(lean.toString());
+        if (standard.pageReadyMillis() > 0) {
+            logger.info("Lean profile page-ready time: {}% of standard, total RSS: {}% of standard",
+                Math.round(100.0 * lean.pageReadyMillis() / standard.pageReadyMillis()),
+                standard.totalRssKb() > 0 ? Math.round(100.0 * lean.totalRssKb() / standard.totalRssKb()) : -1);
+        }
+    }
+
+    private Measurement measure(String profile) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("browser.profile", profile);
+
+        Measurement measurement = new Measurement(profile);
+        for (int run = 0; run < RUNS; run++) {
+            Path userDataDir = Files.createTempDirectory("mail-deletion-bench-");
+            ChromeOptions options = BrowserFactory.options(props);
+            options.addArguments("--user-data-dir=" + userDataDir.toAbsolutePath());
+            if (!LeanProfile.isEnabled(props) && System.getenv("DISPLAY") == null && isLinux()) {
+                // The standard profile is headed; without a display it can only be measured headless
+                options.addArguments("--headless=new");
+            }
+
+            WebDriver driver = BrowserFactory.launch(options, props);
+            try {
+                long start = System.nanoTime();
+                driver.get(server.url("/fixtures/heavy-page.html"));
+                long pageReady = (System.nanoTime() - start) / 1_000_000;
+                long loadEvent = ((Number) ((JavascriptExecutor) driver).executeScript(
+                    "var t = performance.getEntriesByType('navigation')[0]; return t ? t.loadEventEnd : -1;")).longValue();
+                List<Long> rss = ChromeProcessMemory.rssPerProcessKb(userDataDir);
+                measurement.add(pageReady, loadEvent, rss);
+            } finally {
+                driver.quit();
+                TestSupport.deleteRecursively(userDataDir);
+            }
+        }
+        return measurement;
+    }
+
+    private static boolean isLinux() {
+        return System.getProperty("os.name", "").toLowerCase().contains("linux");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static class Measurement {
+        private final String profile;
+        private int runs;
+        // Sums over all runs; the means are only taken when reporting, so no run is rounded away
+        private long pageReadyMillis;
+        private long loadEventMillis;
+        private long processes;
+        private long totalRssKb;
+
+        Measurement(String profile) {
+            this.profile = profile;
+        }
+
+        void add(long pageReady, long loadEvent, List<Long> rss) {
+            runs++;
+            pageReadyMillis += pageReady;
+            loadEventMillis += loadEvent;
+            processes += rss.size();
+            totalRssKb += rss.stream().mapToLong(Long::longValue).sum();
+        }
+
+        double pageReadyMillis() {
+            return mean(pageReadyMillis);
+        }
+
+        double totalRssKb() {
+            return mean(totalRssKb);
+        }
+
+        private double mean(long sum) {
+            return runs > 0 ? (double) sum / runs : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s | %15.1f | %15.1f | %9.1f | %16.1f | %14.1f", profile, pageReadyMillis(),
+                mean(loadEventMillis), mean(processes), processes > 0 ? totalRssKb / 1024.0 / processes : 0.0,
+                totalRssKb() / 1024.0);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.test;
+
+/**
+ * A way of moving every unread message of one mailbox to Trash. Implementations keep their
+ * connection (browser session or IMAP store) open between calls and release it on close.
+ */
+public interface MailDeletionEngine extends AutoCloseable {
+
+    /**
+     * Deletes all unread messages and returns how many were deleted.
+     *
+     * @throws RuntimeException when the mailbox could not be cleaned completely
+     */
+    int deleteUnread() throws InterruptedException;
+
+    String getName();
+
+    @Override
+    void close();
+}
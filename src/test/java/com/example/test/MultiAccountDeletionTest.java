@@ -0,0 +1,121 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Cleans every account from {@link AccountSource} concurrently. TestNG's parallel data
+ * provider fans the accounts out over threads and {@link ChromeWorkerPool} bounds how many
+ * browsers are alive at once. Run with: mvn test -Dsuite.file=testng-multi-account.xml
+ */
+public class MultiAccountDeletionTest {
+    private static final Logger logger = LoggerFactory.getLogger(MultiAccountDeletionTest.class);
+
+    private final Queue<AccountResult> results = new ConcurrentLinkedQueue<>();
+    private Properties props;
+    private SessionCache sessionCache;
+    private ChromeWorkerPool pool;
+    private long startedAt;
+
+    @BeforeClass
+    public void setUp() {
+        try {
+            props = GmailTest.loadProperties();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load test.properties file. Please ensure it exists in src/test/resources/", e);
+        }
+        sessionCache = SessionCache.fromProperties(props);
+        pool = ChromeWorkerPool.fromProperties(props, sessionCache);
+        startedAt = System.currentTimeMillis();
+    }
+
+    @DataProvider(name = "accounts", parallel = true)
+    public Object[][] accounts() {
+        List<Account> accounts = AccountSource.fromProperties(props);
+        logger.info("Cleaning {} accounts with {} workers", accounts.size(), pool.getSize());
+        Object[][] data = new Object[accounts.size()][];
+        for (int i = 0; i < accounts.size(); i++) {
+            data[i] = new Object[]{accounts.get(i)};
+        }
+        return data;
+    }
+
+    @Test(dataProvider = "accounts")
+    public void deleteUnreadEmails(Account account) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        GmailCleaner cleaner = null;
+        RunMetrics metrics = new RunMetrics();
+        try (ChromeWorkerPool.Worker worker = pool.acquire(account)) {
+            WebDriver driver = worker.getDriver();
+            if (RunMetrics.isEnabled(props)) {
+                WebDriverProfiler profiler = new WebDriverProfiler();
+                metrics.attach(profiler);
+                driver = profiler.decorate(driver);
+            }
+            cleaner = new GmailCleaner(driver, props, sessionCache, account, metrics);
+            try {
+                boolean success = cleaner.run();
+                results.add(new AccountResult(account.getEmail(), success, cleaner.getDeletedCount(),
+                    System.currentTimeMillis() - start, success ? null : "not all unread emails were deleted"));
+                if (!success) {
+                    throw new RuntimeException("Failed to delete all unread emails for " + account);
+                }
+            } finally {
+                // Before the pooled driver goes back, or the next account would inherit these network listeners
+                cleaner.close();
+            }
+        } catch (RuntimeException e) {
+            if (results.stream().noneMatch(r -> r.getAccount().equals(account.getEmail()))) {
+                results.add(new AccountResult(account.getEmail(), false, cleaner != null ? cleaner.getDeletedCount() : 0,
+                    System.currentTimeMillis() - start, e.getMessage()));
+            }
+            throw e;
+        } finally {
+            exportMetrics(account, metrics);
+        }
+    }
+    
+    private void exportMetrics(Account account, RunMetrics metrics) {
+        if (!RunMetrics.isEnabled(props)) {
+            return;
+        }
+        Path report = RunMetrics.reportPath(props, account.getEmail());
+        try {
+            metrics.export(report);
+        } catch (IOException e) {
+            logger.warn("Failed to write run metrics for {} to {}: {}", account, report, e.getMessage());
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void summarize() {
+        if (pool != null) {
+            pool.close();
+        }
+        long elapsed = System.currentTimeMillis() - startedAt;
+        int deleted = 0;
+        int failed = 0;
+        for (AccountResult result : results) {
+            deleted += result.getDeleted();
+            if (!result.isSuccess()) {
+                failed++;
+            }
+            logger.info("{}: {} deleted in {} ms{}", result.getAccount(), result.getDeleted(), result.getDurationMillis(),
+                result.isSuccess() ? "" : " - FAILED: " + result.getError());
+        }
+        logger.info("Multi-account run finished: {} accounts, {} failed, {} emails deleted in {} ms ({} emails/s)",
+            results.size(), failed, deleted, elapsed, elapsed > 0 ? String.format("%.1f", deleted * 1000.0 / elapsed) : "n/a");
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tells when a page is actually usable by tracking its network traffic over the DevTools
+ * Network domain: requests are in flight from requestWillBeSent until loadingFinished or
+ * loadingFailed, and every response is remembered briefly by URL. Exposes "network quiet
+ * for N ms" and "endpoint responded" as wait conditions.
+ *
+ * Gmail keeps long-poll channels open for as long as the page lives, so requests matching
+ * the ignore list, or open longer than the long-poll threshold, do not count as activity.
+ * Without DevTools (e.g. a remote driver) the readiness is unavailable: quiet conditions
+ * hold at once and callers keep their DOM conditions.
+ *
+ * Configured from test.properties:
+ *   readiness.enabled        track network activity through DevTools (default true)
+ *   readiness.quiet.ms       how long the network must be idle to count as quiet (default 500)
+ *   readiness.longpoll.ms    requests open longer than this are treated as long-polls (default 5000)
+ *   readiness.ignored.urls   comma separated URL substrings that never count as activity
+ */
+public class NetworkReadiness implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NetworkReadiness.class);
+    private static final int MAX_RESPONSES = 256;
+
+    static final List<String> DEFAULT_IGNORED_URLS = Arrays.asList(
+        "/channel/bind", "/channel/test", "/mail/u/0/logstreamz", "/log?format=", "/gen_204",
+        "play.google.com/log", "signaler-pa.", "/_/scs/");
+
+    private final DevTools devTools;
+    private final Duration quietPeriod;
+    private final long longPollNanos;
+    private final List<String> ignoredUrls;
+    private final Map<String, Long> inFlight = new ConcurrentHashMap<>();
+    private final Deque<Response> responses = new ConcurrentLinkedDeque<>();
+    private final AtomicLong lastActivity = new AtomicLong(System.nanoTime());
+    private final AtomicLong sequence = new AtomicLong();
+
+    private NetworkReadiness(DevTools devTools, Duration quietPeriod, long longPollMillis, List<String> ignoredUrls) {
+        this.devTools = devTools;
+        this.quietPeriod = quietPeriod;
+        this.longPollNanos = longPollMillis * 1_000_000;
+        this.ignoredUrls = ignoredUrls;
+    }
+
+    public static NetworkReadiness attach(WebDriver driver, Properties props) {
+        Duration quiet = Duration.ofMillis(Long.parseLong(props.getProperty("readiness.quiet.ms", "500").trim()));
+        long longPoll = Long.parseLong(props.getProperty("readiness.longpoll.ms", "5000").trim());
+        List<String> ignored = DEFAULT_IGNORED_URLS;
+        String configured = props.getProperty("readiness.ignored.urls");
+        if (configured != null && !configured.trim().isEmpty()) {
+            ignored = new ArrayList<>();
+            for (String url : configured.split(",")) {
+                if (!url.trim().isEmpty()) {
+                    ignored.add(url.trim());
+                }
+            }
+        }
+
+        if (!Boolean.parseBoolean(props.getProperty("readiness.enabled", "true")) || !(driver instanceof HasDevTools)) {
+            return new NetworkReadiness(null, quiet, longPoll, ignored);
+        }
+        try {
+            DevTools devTools = ((HasDevTools) driver).getDevTools();
+            devTools.createSessionIfThereIsNotOne(driver.getWindowHandle());
+            NetworkReadiness readiness = new NetworkReadiness(devTools, quiet, longPoll, ignored);
+            readiness.listen();
+            return readiness;
+        } catch (RuntimeException e) {
+            logger.warn("Network readiness unavailable, falling back to DOM conditions: {}", e.getMessage());
+            return new NetworkReadiness(null, quiet, longPoll, ignored);
+        }
+    }
+
+    private void listen() {
+        devTools.send(new Command<Void>("Network.enable", Map.of()));
+        devTools.addListener(event("Network.requestWillBeSent"), params -> {
+            Object request = params.get("request");
+            String url = request instanceof Map ? String.valueOf(((Map<?, ?>) request).get("url")) : "";
+            if (!isIgnored(url)) {
+                inFlight.put(String.valueOf(params.get("requestId")), System.nanoTime());
+                lastActivity.set(System.nanoTime());
+            }
+        });
+        devTools.addListener(event("Network.responseReceived"), params -> {
+            Object response = params.get("response");
+            if (response instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) response;
+                Object status = map.get("status");
+                responses.addLast(new Response(sequence.incrementAndGet(), String.valueOf(map.get("url")),
+                    status instanceof Number ? ((Number) status).intValue() : 0));
+                while (responses.size() > MAX_RESPONSES) {
+                    responses.pollFirst();
+                }
+            }
+        });
+        devTools.addListener(event("Network.loadingFinished"), params -> finished(params));
+        devTools.addListener(event("Network.loadingFailed"), params -> finished(params));
+        logger.info("Tracking network readiness through DevTools (quiet period {} ms)", quietPeriod.toMillis());
+    }
+
+    private static Event<Map<String, Object>> event(String method) {
+        return new Event<>(method, input -> input.read(Json.MAP_TYPE));
+    }
+
+    private void finished(Map<String, Object> params) {
+        if (inFlight.remove(String.valueOf(params.get("requestId"))) != null) {
+            lastActivity.set(System.nanoTime());
+        }
+    }
+
+    private boolean isIgnored(String url) {
+        for (String ignored : ignoredUrls) {
+            if (url.contains(ignored)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isAvailable() {
+        return devTools != null;
+    }
+
+    /**
+     * Position in the response log; pass it to {@link #endpointResponded(Pattern, long)} to
+     * only accept responses that arrive after this point.
+     */
+    public long mark() {
+        return sequence.get();
+    }
+
+    int pendingRequests() {
+        long now = System.nanoTime();
+        int pending = 0;
+        for (long startedAt : inFlight.values()) {
+            if (now - startedAt < longPollNanos) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Holds once no tracked request has been in flight for the configured quiet period.
+     */
+    public ExpectedCondition<Boolean> networkQuiet() {
+        return networkQuietFor(quietPeriod);
+    }
+
+    public ExpectedCondition<Boolean> networkQuietFor(Duration quiet) {
+        return new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                if (!isAvailable()) {
+                    return true;
+                }
+                return pendingRequests() == 0 && System.nanoTime() - lastActivity.get() >= quiet.toNanos();
+            }
+
+            @Override
+            public String toString() {
+                return "network to be quiet for " + quiet.toMillis() + " ms (" + pendingRequests() + " requests in flight)";
+            }
+        };
+    }
+
+    /**
+     * Holds with the response status once a response whose URL matches the pattern arrived
+     * after the given mark. Never holds when the readiness is unavailable.
+     */
+    public ExpectedCondition<Integer> endpointResponded(Pattern urlPattern, long sinceMark) {
+        return new ExpectedCondition<Integer>() {
+            @Override
+            public Integer apply(WebDriver driver) {
+                for (Response response : responses) {
+                    if (response.sequence > sinceMark && urlPattern.matcher(response.url).find()) {
+                        return response.status;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public String toString() {
+                return "a response from " + urlPattern.pattern();
+            }
+        };
+    }
+
+    public ExpectedCondition<Integer> endpointResponded(Pattern urlPattern) {
+        return endpointResponded(urlPattern, mark());
+    }
+
+    @Override
+    public void close() {
+        if (devTools != null) {
+            try {
+                devTools.clearListeners();
+            } catch (RuntimeException e) {
+                logger.debug("Could not remove network listeners: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static final class Response {
+        final long sequence;
+        final String url;
+        final int status;
+
+        Response(long sequence, String url, int status) {
+            this.sequence = sequence;
+            this.url = url;
+            this.status = status;
+        }
+    }
+}
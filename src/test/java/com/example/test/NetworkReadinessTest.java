@@ -0,0 +1,69 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class NetworkReadinessTest {
+    private FixtureServer server;
+    private WebDriver driver;
+    private NetworkReadiness readiness;
+    private WaitEngine waits;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        TestSupport.requireChrome("offline fixture tests");
+        server = FixtureServer.start();
+        Properties props = TestSupport.headlessProfile();
+        // Let the fixture's fonts and video through so there is traffic to track
+        props.setProperty("browser.blocked.urls", "*doubleclick.net*");
+        driver = TestSupport.launchHeadless(props);
+        readiness = NetworkReadiness.attach(driver, props);
+        waits = WaitEngine.fromProperties(driver, props).withReadiness(readiness);
+    }
+
+    @Test
+    public void tracksRequestsUntilTheNetworkIsQuiet() {
+        Assert.assertTrue(readiness.isAvailable(), "ChromeDriver should expose DevTools");
+        long mark = readiness.mark();
+
+        driver.get(server.url("/fixtures/heavy-page.html"));
+
+        Integer status = waits.until(WaitEngine.Phase.INBOX,
+            readiness.endpointResponded(Pattern.compile("/assets/promo\\.mp4"), mark));
+        Assert.assertEquals(status.intValue(), 200);
+        Assert.assertTrue(waits.until(WaitEngine.Phase.INBOX, readiness.networkQuietFor(Duration.ofMillis(300))));
+        Assert.assertEquals(readiness.pendingRequests(), 0);
+    }
+
+    @Test
+    public void ignoresResponsesFromBeforeTheMark() {
+        driver.get(server.url("/fixtures/heavy-page.html"));
+        waits.until(WaitEngine.Phase.INBOX, readiness.networkQuiet());
+
+        long mark = readiness.mark();
+
+        Assert.assertFalse(waits.tryUntil(WaitEngine.Phase.RECHECK,
+            readiness.endpointResponded(Pattern.compile("/assets/"), mark)).isPresent());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        if (readiness != null) {
+            readiness.close();
+        }
+        if (driver != null) {
+            driver.quit();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs every {@link DeletionRule} as its own search-driven pass through
+ * {@link SearchBulkDeleter}. A dry-run rule only counts its matches. Otherwise the rule's
+ * search is bulk deleted through the select-all banner; when Gmail does not offer it, the
+ * selected page is deleted and the search reopened, until it comes back empty.
+ *
+ * Configured from test.properties:
+ *   rules.max.passes   searches per rule before giving up on it (default 20)
+ */
+public class RuleRunner {
+    private static final Logger logger = LoggerFactory.getLogger(RuleRunner.class);
+
+    private final SearchBulkDeleter deleter;
+    private final RunMetrics metrics;
+    private final int maxPasses;
+
+    public RuleRunner(SearchBulkDeleter deleter, RunMetrics metrics, int maxPasses) {
+        this.deleter = deleter;
+        this.metrics = metrics;
+        this.maxPasses = maxPasses;
+    }
+
+    public static RuleRunner fromProperties(SearchBulkDeleter deleter, RunMetrics metrics, Properties props) {
+        return new RuleRunner(deleter, metrics, Integer.parseInt(props.getProperty("rules.max.passes", "20").trim()));
+    }
+
+    public List<Result> run(List<DeletionRule> rules) {
+        List<Result> results = new ArrayList<>();
+        for (DeletionRule rule : rules) {
+            Result result;
+            RunMetrics.Timer timer = metrics.start("rule." + rule.getName());
+            try {
+                result = rule.isDryRun() ? count(rule) : delete(rule);
+            } catch (RuntimeException e) {
+                logger.error("Rule {} failed: {}", rule, e.getMessage());
+                result = new Result(rule, SearchBulkDeleter.Outcome.FAILED, null, 0);
+            } finally {
+                timer.stop();
+            }
+            metrics.increment("rules." + (rule.isDryRun() && result.isSuccess() ? "dry_run"
+                : result.getOutcome().name().toLowerCase()), 1);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private Result count(DeletionRule rule) {
+        SearchBulkDeleter.Count count = deleter.count(rule.getQuery());
+        metrics.gauge("rule." + rule.getName() + ".matches", count.getValue());
+        logger.info("Dry run of rule {}: {} conversations would be deleted", rule, count);
+        return new Result(rule, null, count, 0);
+    }
+
+    private Result delete(DeletionRule rule) {
+        logger.info("Running rule {}", rule);
+        int passes = 0;
+        boolean deletedAny = false;
+        while (passes < maxPasses) {
+            passes++;
+            SearchBulkDeleter.Outcome outcome = deleter.deleteAllMatching(rule.getQuery());
+            switch (outcome) {
+                case DELETED:
+                    return new Result(rule, outcome, null, passes);
+                case EMPTY:
+                    return new Result(rule, deletedAny ? SearchBulkDeleter.Outcome.DELETED : outcome, null, passes);
+                case NOT_OFFERED:
+                    // The matches fit on the selected page, or Gmail withheld the banner; take them a page at a time
+                    if (!deleter.deleteSelection()) {
+                        logger.error("No Trash confirmation for the selected page of rule {}", rule.getName());
+                        return new Result(rule, SearchBulkDeleter.Outcome.FAILED, null, passes);
+                    }
+                    deletedAny = true;
+                    break;
+                default:
+                    return new Result(rule, outcome, null, passes);
+            }
+        }
+        logger.warn("Rule {} still had matches after {} passes", rule.getName(), maxPasses);
+        return new Result(rule, SearchBulkDeleter.Outcome.FAILED, null, passes);
+    }
+
+    public static class Result {
+        private final DeletionRule rule;
+        private final SearchBulkDeleter.Outcome outcome;
+        private final SearchBulkDeleter.Count count;
+        private final int passes;
+
+        Result(DeletionRule rule, SearchBulkDeleter.Outcome outcome, SearchBulkDeleter.Count count, int passes) {
+            this.rule = rule;
+            this.outcome = outcome;
+            this.count = count;
+            this.passes = passes;
+        }
+
+        public DeletionRule getRule() {
+            return rule;
+        }
+
+        /** How the deletion ended; null for a dry run. */
+        public SearchBulkDeleter.Outcome getOutcome() {
+            return outcome;
+        }
+
+        /** Matches counted by a dry run; null for rules that deleted. */
+        public SearchBulkDeleter.Count getCount() {
+            return count;
+        }
+
+        public int getPasses() {
+            return passes;
+        }
+
+        public boolean isSuccess() {
+            return outcome != SearchBulkDeleter.Outcome.FAILED;
+        }
+    }
+}
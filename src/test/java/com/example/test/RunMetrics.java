@@ -0,0 +1,128 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.json.Json;
+
+/**
+ * Per-run instrumentation: latency histograms per phase (login, security prompts, selection,
+ * delete click, verification, whole batches, ...), counters, and the command profile of an
+ * optional {@link WebDriverProfiler}. {@link #export(Path)} writes everything as one JSON
+ * report for dashboards and regression alerts.
+ */
+public class RunMetrics {
+    private final Map<String, LatencyHistogram> phases = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<String, Object> gauges = new ConcurrentHashMap<>();
+    private final Instant startedAt = Instant.now();
+    private volatile WebDriverProfiler profiler;
+
+    public Timer start(String phase) {
+        return new Timer(phase, System.nanoTime());
+    }
+
+    public void record(String phase, long nanos) {
+        phases.computeIfAbsent(phase, name -> new LatencyHistogram()).record(nanos);
+    }
+
+    public void increment(String counter, long delta) {
+        counters.computeIfAbsent(counter, name -> new AtomicLong()).addAndGet(delta);
+    }
+
+    public void gauge(String name, Object value) {
+        gauges.put(name, value);
+    }
+
+    public LatencyHistogram phase(String phase) {
+        return phases.computeIfAbsent(phase, name -> new LatencyHistogram());
+    }
+
+    public long counter(String counter) {
+        AtomicLong value = counters.get(counter);
+        return value == null ? 0 : value.get();
+    }
+
+    public void attach(WebDriverProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public Map<String, Object> toReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", startedAt.toString());
+        report.put("finishedAt", Instant.now().toString());
+        Map<String, Object> phaseReport = new TreeMap<>();
+        phases.forEach((name, histogram) -> phaseReport.put(name, histogram.toMap()));
+        report.put("phases", phaseReport);
+        Map<String, Object> counterReport = new TreeMap<>();
+        counters.forEach((name, value) -> counterReport.put(name, value.get()));
+        report.put("counters", counterReport);
+        report.put("gauges", new TreeMap<>(gauges));
+        if (profiler != null) {
+            report.put("webDriver", profiler.toReport());
+        }
+        return report;
+    }
+
+    public static boolean isEnabled(Properties props) {
+        return Boolean.parseBoolean(props.getProperty("metrics.enabled", "true"));
+    }
+
+    /**
+     * Where the report of a run for the given account goes: metrics.report.dir (default
+     * target/metrics), one file per account and run.
+     */
+    public static Path reportPath(Properties props, String account) {
+        String key = account.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_");
+        return Paths.get(props.getProperty("metrics.report.dir", "target/metrics"),
+            "run-" + key + "-" + System.currentTimeMillis() + ".json");
+    }
+
+    public void export(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, new Json().toJson(toReport()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Measures one occurrence of a phase; {@link #stop()} records it, later calls are ignored.
+     */
+    public class Timer {
+        private final String phase;
+        private final long startNanos;
+        private boolean stopped;
+
+        Timer(String phase, long startNanos) {
+            this.phase = phase;
+            this.startNanos = startNanos;
+        }
+
+        public long stop() {
+            return stopAs(phase);
+        }
+
+        /**
+         * Records this occurrence under another phase, such as a failed or skipped variant of it.
+         */
+        public long stopAs(String outcomePhase) {
+            long elapsed = System.nanoTime() - startNanos;
+            if (!stopped) {
+                stopped = true;
+                record(outcomePhase, elapsed);
+            }
+            return elapsed;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the in-page JavaScript snippets kept under src/test/resources/scripts.
+ */
+public final class Scripts {
+    private static final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    private Scripts() {
+    }
+
+    public static String load(String name) {
+        return cache.computeIfAbsent(name, Scripts::read);
+    }
+
+    /**
+     * Joins several snippets into one script, e.g. shared helpers followed by the script that
+     * uses them.
+     */
+    public static String bundle(String... names) {
+        String key = String.join("+", names);
+        String bundled = cache.get(key);
+        if (bundled == null) {
+            StringBuilder script = new StringBuilder();
+            for (String name : names) {
+                script.append(load(name)).append('\n');
+            }
+            bundled = script.toString();
+            cache.putIfAbsent(key, bundled);
+        }
+        return bundled;
+    }
+
+    private static String read(String name) {
+        String path = "/scripts/" + name;
+        try (InputStream in = Scripts.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new RuntimeException("Script resource not found: " + path);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read script resource: " + path, e);
+        }
+    }
+}
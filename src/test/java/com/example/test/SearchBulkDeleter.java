@@ -0,0 +1,195 @@
+package com.example.test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes every conversation matching a Gmail search in one action: opens the search,
+ * ticks the master checkbox, accepts the "Select all conversations that match this
+ * search" banner and confirms the bulk delete. When Gmail does not offer the banner
+ * (e.g. the results fit on one page) the caller falls back to page-by-page deletion.
+ * {@link #count(String)} reports how many conversations a search matches without deleting.
+ */
+public class SearchBulkDeleter {
+    private static final Logger logger = LoggerFactory.getLogger(SearchBulkDeleter.class);
+
+    static final By UNREAD_ROW = By.cssSelector("tr.zE");
+    // Any result row, so searches that include read mail (tr.yO) are found as well
+    static final By RESULT_ROW = By.cssSelector("tr.zA, tr.zE, tr.yO");
+    // Toolbar page range such as "1–50 of 2,345", or "1–50 of many" for large searches
+    static final By PAGE_RANGE = By.cssSelector("span.Dj");
+    private static final Pattern RANGE_TOTAL = Pattern.compile("of[\\s\\u00a0]+(\\d[\\d,.\\s\\u00a0\\u202f]*)$");
+    private static final Pattern BANNER_TOTAL = Pattern.compile("(\\d[\\d,.]*)\\s+conversations");
+    static final By MASTER_CHECKBOX = By.cssSelector("div[gh='tm'] [role='checkbox']");
+    static final By SELECT_ALL_BANNER = By.xpath(
+        "//span[@role='link'][contains(., 'Select all') and contains(., 'conversations')]");
+    static final By DELETE_BUTTON = By.cssSelector("[aria-label='Delete']");
+    static final By BULK_CONFIRM_OK = By.cssSelector("button[name='ok']");
+
+    public enum Outcome {
+        /** Everything matching the search was moved to Trash. */
+        DELETED,
+        /** The search returned no conversations. */
+        EMPTY,
+        /** Gmail did not offer the select-all banner; the visible page is left selected. */
+        NOT_OFFERED,
+        /** The bulk delete was issued but no Trash confirmation appeared. */
+        FAILED
+    }
+
+    private final WebDriver driver;
+    private final WaitEngine waits;
+    private final String baseUrl;
+
+    public SearchBulkDeleter(WebDriver driver, WaitEngine waits, String baseUrl) {
+        this.driver = driver;
+        this.waits = waits;
+        this.baseUrl = baseUrl;
+    }
+
+    public String searchUrl(String query) {
+        return baseUrl + "#search/" + URLEncoder.encode(query, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens the search and reports whether it has any results.
+     */
+    private boolean openSearch(String query) {
+        driver.get(searchUrl(query));
+        waits.present(WaitEngine.Phase.INBOX, By.cssSelector("div[role='main']"));
+        return waits.tryUntil(WaitEngine.Phase.RECHECK, ExpectedConditions.presenceOfElementLocated(RESULT_ROW)).isPresent();
+    }
+
+    public Outcome deleteAllMatching(String query) {
+        logger.info("Opening search '{}' for bulk deletion", query);
+        if (!openSearch(query)) {
+            logger.info("Search '{}' returned no conversations", query);
+            return Outcome.EMPTY;
+        }
+
+        WebElement masterCheckbox = waits.clickable(WaitEngine.Phase.SELECTION, MASTER_CHECKBOX);
+        ((JavascriptExecutor) driver).executeScript("arguments[0].click();", masterCheckbox);
+
+        WebElement banner = waits.tryUntil(WaitEngine.Phase.SELECTION,
+            ExpectedConditions.elementToBeClickable(SELECT_ALL_BANNER)).orElse(null);
+        if (banner == null) {
+            logger.info("Select-all banner not offered for '{}', falling back to page-by-page deletion", query);
+            return Outcome.NOT_OFFERED;
+        }
+        ((JavascriptExecutor) driver).executeScript("arguments[0].click();", banner);
+        waits.tryUntil(WaitEngine.Phase.SELECTION, ExpectedConditions.stalenessOf(banner));
+        logger.info("Selected all conversations matching '{}'", query);
+
+        if (!deleteSelection()) {
+            logger.error("No Trash confirmation after bulk delete of '{}'", query);
+            return Outcome.FAILED;
+        }
+        return Outcome.DELETED;
+    }
+
+    /**
+     * Deletes whatever is currently selected, such as the page left selected after
+     * {@link Outcome#NOT_OFFERED}, and reports whether Gmail confirmed it.
+     */
+    public boolean deleteSelection() {
+        WebElement deleteButton = waits.clickable(WaitEngine.Phase.DELETE, DELETE_BUTTON);
+        ((JavascriptExecutor) driver).executeScript("arguments[0].click();", deleteButton);
+
+        // Gmail asks to confirm bulk actions that span more than the visible page
+        waits.tryUntil(WaitEngine.Phase.DELETE, ExpectedConditions.or(
+            ExpectedConditions.elementToBeClickable(BULK_CONFIRM_OK),
+            WaitEngine.trashToast()));
+        for (WebElement ok : driver.findElements(BULK_CONFIRM_OK)) {
+            if (ok.isDisplayed()) {
+                ((JavascriptExecutor) driver).executeScript("arguments[0].click();", ok);
+                break;
+            }
+        }
+
+        WebElement toast = waits.tryUntil(WaitEngine.Phase.CONFIRM, WaitEngine.trashToast()).orElse(null);
+        if (toast == null) {
+            return false;
+        }
+        logger.info("Bulk delete confirmed: {}", toast.getText());
+        return true;
+    }
+
+    /**
+     * Counts the conversations matching a search without deleting anything. The total comes
+     * from the toolbar page range; when that only says "many", from the select-all banner,
+     * and when the banner has no number either, the rows on the first page are a lower bound.
+     */
+    public Count count(String query) {
+        logger.info("Counting conversations matching '{}'", query);
+        if (!openSearch(query)) {
+            return new Count(0, true);
+        }
+        for (WebElement range : driver.findElements(PAGE_RANGE)) {
+            if (range.isDisplayed()) {
+                Long total = parseTotal(RANGE_TOTAL, range.getText());
+                if (total != null) {
+                    return new Count(total, true);
+                }
+            }
+        }
+
+        int onPage = driver.findElements(RESULT_ROW).size();
+        WebElement masterCheckbox = waits.clickable(WaitEngine.Phase.SELECTION, MASTER_CHECKBOX);
+        ((JavascriptExecutor) driver).executeScript("arguments[0].click();", masterCheckbox);
+        try {
+            WebElement banner = waits.tryUntil(WaitEngine.Phase.SELECTION,
+                ExpectedConditions.visibilityOfElementLocated(SELECT_ALL_BANNER)).orElse(null);
+            Long total = banner != null ? parseTotal(BANNER_TOTAL, banner.getText()) : null;
+            if (total != null) {
+                return new Count(total, true);
+            }
+            // No banner means everything fits on this page
+            return new Count(onPage, banner == null);
+        } finally {
+            ((JavascriptExecutor) driver).executeScript("arguments[0].click();", masterCheckbox);
+        }
+    }
+
+    static Long parseTotal(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text.trim());
+        if (!matcher.find()) {
+            return null;
+        }
+        String digits = matcher.group(1).replaceAll("[^0-9]", "");
+        return digits.isEmpty() ? null : Long.parseLong(digits);
+    }
+
+    public static class Count {
+        private final long value;
+        private final boolean exact;
+
+        Count(long value, boolean exact) {
+            this.value = value;
+            this.exact = exact;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        /** False when Gmail did not say, and the value is only the first page of results. */
+        public boolean isExact() {
+            return exact;
+        }
+
+        @Override
+        public String toString() {
+            return exact ? String.valueOf(value) : "at least " + value;
+        }
+    }
+}
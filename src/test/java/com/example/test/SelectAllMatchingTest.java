@@ -0,0 +1,95 @@
+package com.example.test;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Properties;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class SelectAllMatchingTest {
+    private static final Logger logger = LoggerFactory.getLogger(SelectAllMatchingTest.class);
+
+    private WebDriver driver;
+    private WaitEngine waits;
+    private String fixtureUrl;
+
+    @BeforeClass
+    public void setUp() {
+        TestSupport.requireChrome("offline fixture tests");
+        Properties props = TestSupport.headlessProfile();
+        props.setProperty("browser.viewport", "1280x1024");
+        driver = TestSupport.launchHeadless(props);
+        waits = new WaitEngine(driver, Duration.ofMillis(50));
+
+        URL fixture = getClass().getResource("/fixtures/select-all.html");
+        Assert.assertNotNull(fixture, "select-all.html fixture missing from test resources");
+        fixtureUrl = fixture.toExternalForm();
+        logger.info("Using fixture {}", fixtureUrl);
+    }
+
+    @Test
+    public void deletesEverythingMatchingWhenBannerIsOffered() {
+        SearchBulkDeleter deleter = new SearchBulkDeleter(driver, waits, fixtureUrl + "?unread=180");
+
+        SearchBulkDeleter.Outcome outcome = deleter.deleteAllMatching("is:unread");
+
+        Assert.assertEquals(outcome, SearchBulkDeleter.Outcome.DELETED);
+        Assert.assertTrue(driver.findElements(By.cssSelector("tr.zE")).isEmpty(), "unread rows left after bulk delete");
+        Assert.assertTrue(driver.findElement(WaitEngine.TRASH_TOAST).getText().startsWith("180 conversations"));
+    }
+
+    @Test
+    public void reportsNotOfferedWithoutBanner() {
+        SearchBulkDeleter deleter = new SearchBulkDeleter(driver, waits, fixtureUrl + "?unread=180&banner=off");
+
+        SearchBulkDeleter.Outcome outcome = deleter.deleteAllMatching("is:unread");
+
+        Assert.assertEquals(outcome, SearchBulkDeleter.Outcome.NOT_OFFERED);
+        Assert.assertEquals(driver.findElements(By.cssSelector("tr.zE div[role='checkbox'][aria-checked='true']")).size(), 50,
+            "visible page should stay selected for the page-by-page fallback");
+    }
+
+    @Test
+    public void reportsEmptySearch() {
+        SearchBulkDeleter deleter = new SearchBulkDeleter(driver, waits, fixtureUrl + "?unread=0");
+
+        Assert.assertEquals(deleter.deleteAllMatching("is:unread"), SearchBulkDeleter.Outcome.EMPTY);
+    }
+
+    @Test
+    public void countsMatchesFromPageRange() {
+        SearchBulkDeleter deleter = new SearchBulkDeleter(driver, waits, fixtureUrl + "?unread=1234");
+
+        SearchBulkDeleter.Count count = deleter.count("from:alerts@example.com");
+
+        Assert.assertTrue(count.isExact());
+        Assert.assertEquals(count.getValue(), 1234);
+        Assert.assertTrue(driver.findElements(By.cssSelector("tr.zE div[role='checkbox'][aria-checked='true']")).isEmpty(),
+            "counting must not leave anything selected");
+    }
+
+    @Test
+    public void countsFirstPageAsLowerBoundWhenRangeSaysMany() {
+        SearchBulkDeleter deleter = new SearchBulkDeleter(driver, waits, fixtureUrl + "?unread=180&range=many");
+
+        SearchBulkDeleter.Count count = deleter.count("older_than:30d");
+
+        Assert.assertFalse(count.isExact());
+        Assert.assertEquals(count.getValue(), 50);
+        Assert.assertEquals(driver.findElements(By.cssSelector("tr.zE")).size(), 50, "counting must not delete");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        if (driver != null) {
+            driver.quit();
+        }
+    }
+}
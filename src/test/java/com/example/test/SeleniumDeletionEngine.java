@@ -0,0 +1,33 @@
+package com.example.test;
+
+/**
+ * The Gmail web UI flow of {@link GmailCleaner} behind the engine interface. The browser is
+ * owned by whoever created it (the test or the worker pool), so close() only releases the
+ * cleaner's own listeners and leaves the browser running.
+ */
+public class SeleniumDeletionEngine implements MailDeletionEngine {
+    private final GmailCleaner cleaner;
+
+    public SeleniumDeletionEngine(GmailCleaner cleaner) {
+        this.cleaner = cleaner;
+    }
+
+    @Override
+    public int deleteUnread() throws InterruptedException {
+        int before = cleaner.getDeletedCount();
+        if (!cleaner.run()) {
+            throw new RuntimeException("Failed to delete all unread emails");
+        }
+        return cleaner.getDeletedCount() - before;
+    }
+
+    @Override
+    public String getName() {
+        return "selenium";
+    }
+
+    @Override
+    public void close() {
+        cleaner.close();
+    }
+}
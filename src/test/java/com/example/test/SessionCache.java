@@ -0,0 +1,95 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one Chrome user-data-dir per account so cookies and local storage survive between
+ * runs. A warm run only has to probe the inbox; the full login flow is needed only when
+ * the stored session has expired.
+ *
+ * Configured from test.properties:
+ *   session.cache.enabled   reuse a per-account Chrome profile (default true)
+ *   session.cache.dir       where profiles are kept (default ~/.mail-deletion/sessions)
+ */
+public class SessionCache {
+    private static final Logger logger = LoggerFactory.getLogger(SessionCache.class);
+
+    private final boolean enabled;
+    private final Path root;
+
+    public SessionCache(boolean enabled, Path root) {
+        this.enabled = enabled;
+        this.root = root;
+    }
+
+    public static SessionCache fromProperties(Properties props) {
+        boolean enabled = Boolean.parseBoolean(props.getProperty("session.cache.enabled", "true"));
+        String dir = props.getProperty("session.cache.dir",
+            Paths.get(System.getProperty("user.home"), ".mail-deletion", "sessions").toString());
+        return new SessionCache(enabled, Paths.get(dir));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path profileDir(String account) {
+        String key = account.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_");
+        return root.resolve(key);
+    }
+
+    /**
+     * Points Chrome at the account's persistent profile. Does nothing when the cache is disabled.
+     */
+    public void apply(ChromeOptions options, String account) {
+        if (!enabled) {
+            return;
+        }
+        Path dir = profileDir(account);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create session profile directory " + dir, e);
+        }
+        options.addArguments("--user-data-dir=" + dir.toAbsolutePath());
+        logger.info("Using cached browser session at {}", dir);
+    }
+
+    /**
+     * Opens the inbox with the restored profile and reports whether the session is still
+     * signed in. Google redirects expired sessions to accounts.google.com or the workspace
+     * landing page, so either of those ends the probe early.
+     */
+    public boolean restore(WebDriver driver, WaitEngine waits, String inboxUrl) {
+        if (!enabled) {
+            return false;
+        }
+        driver.get(inboxUrl);
+        By main = By.cssSelector("div[role='main']");
+        waits.tryUntil(WaitEngine.Phase.INBOX, ExpectedConditions.or(
+            ExpectedConditions.presenceOfElementLocated(main),
+            ExpectedConditions.urlContains("accounts.google.com"),
+            ExpectedConditions.urlContains("workspace.google.com")
+        ));
+
+        boolean valid = driver.getCurrentUrl().contains("mail.google.com") && !driver.findElements(main).isEmpty();
+        if (valid) {
+            logger.info("Restored browser session is still signed in, skipping login");
+        } else {
+            logger.info("Restored browser session has expired, falling back to full login");
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+/**
+ * Compares the time from "need a browser" to a usable page for three startup paths: the
+ * original one (WebDriverManager resolution, then a cold Chrome launch), a launch with the
+ * chromedriver pinned by {@link DriverProvisioner}, and taking a browser that was pre-warmed
+ * while the previous one was in use. Results go to target/benchmarks/startup.json.
+ * Part of the benchmark suite: mvn test -Dsuite.file=testng-benchmark.xml
+ */
+public class StartupBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(StartupBenchmark.class);
+    private static final int RUNS = 3;
+
+    private final List<Map<String, Object>> results = new ArrayList<>();
+    private Path pinFile;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        TestSupport.requireChrome("browser benchmarks");
+        pinFile = Files.createTempFile("chromedriver-pin-", ".properties");
+        Files.delete(pinFile);
+    }
+
+    @Test
+    public void compareStartupPaths() {
+        Properties props = new Properties();
+        props.setProperty("driver.cache.file", pinFile.toString());
+
+        long resolveEachTime = measure("resolve each launch", () -> {
+            WebDriverManager.chromedriver().setup();
+            return new ChromeDriver(options(props));
+        });
+
+        // The first provision pins the driver; the measured runs then start from the pin
+        DriverProvisioner.reset();
+        DriverProvisioner.provision(props);
+        long pinned = measure("pinned driver", () -> {
+            DriverProvisioner.reset();
+            return BrowserFactory.launch(options(props), props);
+        });
+
+        long prewarmed;
+        try {
+            BrowserFactory.prewarm(options(props), props);
+            prewarmed = measure("pre-warmed", () -> {
+                WebDriver driver = BrowserFactory.launch(options(props), props);
+                // Warm the next one while this one is used, as a test run or worker would
+                BrowserFactory.prewarm(options(props), props);
+                return driver;
+            });
+        } finally {
+            BrowserFactory.discardWarm();
+        }
+
+        if (resolveEachTime > 0) {
+            logger.info("Startup time: pinned driver {}%, pre-warmed {}% of resolving on each launch",
+                Math.round(100.0 * pinned / resolveEachTime), Math.round(100.0 * prewarmed / resolveEachTime));
+        }
+    }
+
+    private long measure(String path, Launcher launcher) {
+        long total = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            WebDriver driver = launcher.launch();
+            try {
+                driver.get("about:blank");
+                total += (System.nanoTime() - start) / 1_000_000;
+            } finally {
+                driver.quit();
+            }
+        }
+        long mean = total / RUNS;
+        logger.info("{}: {} ms to a usable browser (mean of {} runs)", path, mean, RUNS);
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("path", path);
+        row.put("runs", RUNS);
+        row.put("meanMillis", mean);
+        results.add(row);
+        return mean;
+    }
+
+    private static ChromeOptions options(Properties props) {
+        // Headless and without a profile, so every path starts the same Chrome
+        ChromeOptions options = BrowserFactory.options(props);
+        options.addArguments("--headless=new");
+        return options;
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() throws IOException {
+        if (pinFile != null) {
+            Files.deleteIfExists(pinFile);
+        }
+        if (!results.isEmpty()) {
+            Path report = Paths.get("target", "benchmarks", "startup.json");
+            Files.createDirectories(report.getParent());
+            Files.write(report, new Json().toJson(results).getBytes(StandardCharsets.UTF_8));
+            logger.info("Startup results written to {}", report);
+        }
+    }
+
+    private interface Launcher {
+        WebDriver launch();
+    }
+}
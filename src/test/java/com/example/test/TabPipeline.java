@@ -0,0 +1,392 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WindowType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Overlaps the select/delete/confirm cycle of one account across several tabs of the same
+ * signed-in browser. Every tab works through a disjoint slice of the unread search (by
+ * default age bands such as newer_than:7d and older_than:7d), and a single coordinator
+ * visits the tabs round-robin: while one tab waits for Gmail to confirm its delete, the
+ * others select and delete their next batch. Confirmations are checked with a non-blocking
+ * {@link DeletionConfirmer#poll()} and page loads by polling the tab's document, so no tab
+ * ever holds the driver while it waits.
+ *
+ * At most pipeline.tabs tabs are open at once; when there are more slices than that, a tab
+ * whose slice is done moves on to the next one.
+ *
+ * The tabs share one {@link BatchController}, since Gmail throttles per account, not per tab.
+ *
+ * Configured from test.properties:
+ *   pipeline.tabs         tabs to spread the work over (default 1, which leaves the pipeline off)
+ *   pipeline.slices       explicit slices, ';' separated search terms added to stream.query
+ *   pipeline.slice.days   age boundaries in days for the default slices (default 7,30,90,365)
+ *   pipeline.poll.ms      pause when no tab could make progress (default 50)
+ */
+public class TabPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(TabPipeline.class);
+    private static final int MAX_FAILED_BATCHES = 3;
+    private static final String CLICK_DELETE =
+        "var button = document.querySelector(\"div[gh='mtb'] [aria-label='Delete']\") "
+        + "|| document.querySelector(\"[aria-label='Delete']\");"
+        + "if (!button || button.offsetParent === null) { return false; }"
+        + "button.click(); return true;";
+    private static final String NAVIGATE =
+        "var url = arguments[0], reload = arguments[1];"
+        + "var sameDocument = location.href.split('#')[0] === url.split('#')[0];"
+        // A fresh document comes without the marker, the old one keeps it until it is gone
+        + "if (reload || !sameDocument) { window.__pipelineNavigating = true; }"
+        // Navigates once the script has returned, so the driver does not wait for the page load
+        + "setTimeout(function () { location.href = url; if (reload && sameDocument) { location.reload(); } }, 0);";
+    private static final String SHOWN =
+        "return !window.__pipelineNavigating && document.readyState === 'complete'"
+        + " && document.querySelector(\"div[role='main']\") !== null;";
+
+    private enum State { LOADING, READY, SELECTED, AWAITING, DONE }
+
+    private final WebDriver driver;
+    private final Properties props;
+    private final RunMetrics metrics;
+    private final BatchController controller;
+    private final WaitEngine waits;
+    private final BulkSelector bulkSelector;
+    private final DeletionConfirmer confirmer;
+    private final String account;
+    private final Set<String> givenUp;
+    private final long pollMillis;
+    private int deleted;
+    private long batches;
+
+    public TabPipeline(WebDriver driver, Properties props, RunMetrics metrics, BatchController controller,
+            String account, Set<String> givenUp) {
+        this.driver = driver;
+        this.props = props;
+        this.metrics = metrics;
+        this.controller = controller;
+        this.account = account;
+        this.givenUp = givenUp;
+        // The readiness tracker follows the first tab only, so the other tabs wait on the DOM
+        this.waits = WaitEngine.fromProperties(driver, props);
+        this.bulkSelector = new BulkSelector(driver, waits);
+        this.confirmer = new DeletionConfirmer(driver);
+        this.pollMillis = Long.parseLong(props.getProperty("pipeline.poll.ms", "50").trim());
+    }
+
+    public static int tabs(Properties props) {
+        return Integer.parseInt(props.getProperty("pipeline.tabs", "1").trim());
+    }
+
+    /**
+     * The search of every slice: the explicit pipeline.slices, however many there are, or the
+     * base query split into as many age bands as there are tabs.
+     */
+    static List<String> slices(String baseQuery, int tabs, String configured, String boundaryDays) {
+        List<String> slices = new ArrayList<>();
+        if (configured != null && !configured.trim().isEmpty()) {
+            for (String slice : configured.split(";")) {
+                if (!slice.trim().isEmpty()) {
+                    slices.add(baseQuery + " " + slice.trim());
+                }
+            }
+            return slices;
+        }
+        List<Integer> days = new ArrayList<>();
+        for (String day : boundaryDays.split(",")) {
+            days.add(Integer.parseInt(day.trim()));
+        }
+        Collections.sort(days);
+        int bands = Math.max(1, Math.min(tabs, days.size() + 1));
+        if (bands == 1) {
+            return Collections.singletonList(baseQuery);
+        }
+        slices.add(baseQuery + " newer_than:" + days.get(0) + "d");
+        for (int band = 1; band < bands - 1; band++) {
+            slices.add(baseQuery + " older_than:" + days.get(band - 1) + "d newer_than:" + days.get(band) + "d");
+        }
+        slices.add(baseQuery + " older_than:" + days.get(bands - 2) + "d");
+        return slices;
+    }
+
+    /**
+     * Runs until every slice is empty or given up on, and returns the number of emails deleted.
+     */
+    public int run() throws InterruptedException, IOException {
+        String baseUrl = props.getProperty("gmail.base.url", GmailCleaner.DEFAULT_BASE_URL);
+        Deque<InboxCursor> slices = new ArrayDeque<>();
+        for (String query : slices(props.getProperty("stream.query", "in:inbox is:unread"), tabs(props),
+                props.getProperty("pipeline.slices"), props.getProperty("pipeline.slice.days", "7,30,90,365"))) {
+            slices.add(new InboxCursor(baseUrl, query, givenUp));
+        }
+        return run(slices, tabs(props));
+    }
+
+    /**
+     * Works through the given slices in at most {@code tabs} tabs.
+     */
+    int run(Deque<InboxCursor> slices, int tabs) throws InterruptedException, IOException {
+        int sliceCount = slices.size();
+        String originalTab = driver.getWindowHandle();
+        List<Lane> lanes = new ArrayList<>();
+
+        try (AuditLog audit = AuditLog.open(props, account)) {
+            while (lanes.size() < Math.max(1, tabs) && !slices.isEmpty()) {
+                if (!lanes.isEmpty()) {
+                    driver.switchTo().newWindow(WindowType.TAB);
+                }
+                Lane lane = new Lane(driver.getWindowHandle());
+                lanes.add(lane);
+                start(lane, slices.poll());
+            }
+            metrics.gauge("pipeline.tabs", lanes.size());
+
+            while (!slices.isEmpty() || lanes.stream().anyMatch(lane -> lane.state != State.DONE)) {
+                boolean progressed = false;
+                for (Lane lane : lanes) {
+                    if ((lane.state == State.DONE && slices.isEmpty())
+                            || (lane.state == State.READY && System.nanoTime() < lane.notBefore)) {
+                        continue;
+                    }
+                    driver.switchTo().window(lane.handle);
+                    try {
+                        if (lane.state == State.DONE) {
+                            start(lane, slices.poll());
+                            progressed = true;
+                        } else {
+                            progressed |= step(lane, audit);
+                        }
+                    } catch (RuntimeException e) {
+                        logger.warn("Tab for '{}' failed: {}", lane.cursor.pageUrl(), e.getMessage());
+                        try {
+                            fail(lane, BatchController.Signal.ERROR);
+                        } catch (RuntimeException reopenFailure) {
+                            logger.warn("Dropping tab for '{}': {}", lane.cursor.pageUrl(), reopenFailure.getMessage());
+                            lane.state = State.DONE;
+                        }
+                        progressed = true;
+                    }
+                }
+                if (!progressed) {
+                    Thread.sleep(pollMillis);
+                }
+            }
+        } finally {
+            for (Lane lane : lanes) {
+                if (!lane.handle.equals(originalTab)) {
+                    try {
+                        driver.switchTo().window(lane.handle).close();
+                    } catch (RuntimeException e) {
+                        logger.debug("Could not close tab: {}", e.getMessage());
+                    }
+                }
+            }
+            driver.switchTo().window(originalTab);
+        }
+        logger.info("Tab pipeline deleted {} emails from {} slices over {} tabs", deleted, sliceCount, lanes.size());
+        return deleted;
+    }
+
+    private void start(Lane lane, InboxCursor cursor) {
+        lane.cursor = cursor;
+        lane.failures = 0;
+        lane.emptySince = 0;
+        lane.notBefore = 0;
+        logger.info("A tab works on '{}'", cursor.pageUrl());
+        // A reload, since the tab may already show the inbox under another search
+        navigate(lane, true);
+    }
+
+    /**
+     * Advances one tab by one non-blocking step and reports whether anything happened.
+     */
+    private boolean step(Lane lane, AuditLog audit) {
+        switch (lane.state) {
+            case LOADING:
+                return load(lane);
+            case READY:
+                return select(lane);
+            case SELECTED:
+                if (clickDelete(lane)) {
+                    return true;
+                }
+                if (elapsedMillis(lane.selectedAt) > waits.timeout(WaitEngine.Phase.DELETE).toMillis()) {
+                    logger.warn("Delete button never became available for '{}'", lane.cursor.pageUrl());
+                    fail(lane, BatchController.Signal.ERROR);
+                    return true;
+                }
+                return false;
+            case AWAITING:
+                return confirm(lane, audit);
+            default:
+                return false;
+        }
+    }
+
+    private boolean select(Lane lane) {
+        BulkSelector.Result result = bulkSelector.selectUnreadRows(lane.cursor.exclusions(), controller.getBatchSize());
+        if (result.getTotal() == 0) {
+            // Gmail may still be refilling the list; only its empty-list marker or a lasting gap ends the slice
+            if (lane.emptySince == 0) {
+                lane.emptySince = System.nanoTime();
+            }
+            if (result.isEmpty() || elapsedMillis(lane.emptySince) > waits.timeout(WaitEngine.Phase.RECHECK).toMillis()) {
+                lane.state = State.DONE;
+                logger.info("Slice '{}' is done", lane.cursor.pageUrl());
+                return true;
+            }
+            return false;
+        }
+        lane.emptySince = 0;
+        if (result.getSkipped() == result.getTotal()) {
+            lane.cursor.nextPage();
+            navigate(lane, false);
+            return true;
+        }
+        if (result.getSelected() == 0) {
+            fail(lane, BatchController.Signal.ERROR);
+            return true;
+        }
+
+        lane.threadIds = result.getThreadIds();
+        lane.rows = result.getSnapshot().rows(lane.threadIds);
+        lane.selectedAt = System.nanoTime();
+        confirmer.arm();
+        lane.state = State.SELECTED;
+        clickDelete(lane);
+        return true;
+    }
+
+    private boolean clickDelete(Lane lane) {
+        if (!Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(CLICK_DELETE))) {
+            return false;
+        }
+        lane.state = State.AWAITING;
+        lane.deletedAt = System.nanoTime();
+        return true;
+    }
+
+    private boolean confirm(Lane lane, AuditLog audit) {
+        Optional<DeletionConfirmer.Result> polled = confirmer.poll();
+        if (!polled.isPresent()) {
+            if (elapsedMillis(lane.deletedAt) > waits.timeout(WaitEngine.Phase.CONFIRM).toMillis()) {
+                logger.warn("No confirmation for {} emails in '{}'", lane.threadIds.size(), lane.cursor.pageUrl());
+                fail(lane, BatchController.Signal.TIMEOUT);
+                return true;
+            }
+            return false;
+        }
+
+        DeletionConfirmer.Result confirmation = polled.get();
+        if (!confirmation.isConfirmed()) {
+            logger.warn("Delete in '{}' not confirmed: {}", lane.cursor.pageUrl(),
+                confirmation.isThrottled() ? confirmation.getToast() : confirmation.getVia());
+            fail(lane, confirmation.isThrottled() ? BatchController.Signal.THROTTLED : BatchController.Signal.ERROR);
+            return true;
+        }
+
+        int count = lane.threadIds.size();
+        deleted += count;
+        lane.failures = 0;
+        lane.cursor.deleted(lane.threadIds);
+        controller.onConfirmed(elapsedMillis(lane.deletedAt));
+        audit.deleted(++batches, confirmation.getVia(), lane.rows);
+        metrics.increment("batches.succeeded", 1);
+        metrics.increment("emails.deleted", count);
+        lane.state = confirmation.isInboxEmpty() ? State.DONE : State.READY;
+        lane.notBefore = System.nanoTime() + controller.getPauseMillis() * 1_000_000;
+        return true;
+    }
+
+    private void fail(Lane lane, BatchController.Signal signal) {
+        controller.onCongestion(signal);
+        metrics.increment("batches.failed", 1);
+        lane.cursor.failed(lane.threadIds);
+        lane.threadIds = Collections.emptyList();
+        lane.rows = Collections.emptyList();
+        if (++lane.failures >= MAX_FAILED_BATCHES) {
+            logger.warn("Giving up on '{}' after {} failed batches in a row", lane.cursor.pageUrl(), lane.failures);
+            lane.state = State.DONE;
+            return;
+        }
+        lane.notBefore = System.nanoTime() + controller.getPauseMillis() * 1_000_000;
+        navigate(lane, true);
+    }
+
+    /**
+     * Starts loading the lane's page without waiting for it; {@link #load} picks it up later.
+     */
+    private void navigate(Lane lane, boolean reload) {
+        ((JavascriptExecutor) driver).executeScript(NAVIGATE, lane.cursor.pageUrl(), reload);
+        lane.state = State.LOADING;
+        lane.loadingSince = System.nanoTime();
+        lane.shownSince = 0;
+    }
+
+    /**
+     * The non-blocking counterpart of the INBOX and RECHECK waits: the page counts as loaded
+     * once its main area is shown and the list is ready, or the list had its RECHECK time.
+     */
+    private boolean load(Lane lane) {
+        boolean shown;
+        try {
+            shown = Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(SHOWN));
+        } catch (WebDriverException e) {
+            // The old document may be unloading while the new one cannot run scripts yet
+            logger.debug("Tab for '{}' is still navigating: {}", lane.cursor.pageUrl(), e.getMessage());
+            shown = false;
+        }
+        if (!shown) {
+            if (elapsedMillis(lane.loadingSince) > waits.timeout(WaitEngine.Phase.INBOX).toMillis()) {
+                logger.warn("Inbox for '{}' did not load", lane.cursor.pageUrl());
+                fail(lane, BatchController.Signal.TIMEOUT);
+                return true;
+            }
+            return false;
+        }
+        if (lane.shownSince == 0) {
+            lane.shownSince = System.nanoTime();
+        }
+        if (Boolean.TRUE.equals(WaitEngine.listReady(lane.cursor.exclusions()).apply(driver))
+                || elapsedMillis(lane.shownSince) > waits.timeout(WaitEngine.Phase.RECHECK).toMillis()) {
+            lane.state = State.READY;
+            return true;
+        }
+        return false;
+    }
+
+    private static long elapsedMillis(long since) {
+        return (System.nanoTime() - since) / 1_000_000;
+    }
+
+    private static final class Lane {
+        final String handle;
+        InboxCursor cursor;
+        State state = State.READY;
+        List<String> threadIds = Collections.emptyList();
+        List<InboxSnapshot.Row> rows = Collections.emptyList();
+        long loadingSince;
+        long shownSince;
+        long selectedAt;
+        long deletedAt;
+        long notBefore;
+        long emptySince;
+        int failures;
+
+        Lane(String handle) {
+            this.handle = handle;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TabPipelineTest {
+    private static final String BASE = "in:inbox is:unread";
+
+    @Test
+    public void splitsIntoDisjointAgeBands() {
+        Assert.assertEquals(TabPipeline.slices(BASE, 3, null, "30,7,365"), Arrays.asList(
+            BASE + " newer_than:7d",
+            BASE + " older_than:7d newer_than:30d",
+            BASE + " older_than:30d"));
+    }
+
+    @Test
+    public void usesExplicitSlices() {
+        Assert.assertEquals(TabPipeline.slices(BASE, 1, "label:promotions; -label:promotions ;", "7"), Arrays.asList(
+            BASE + " label:promotions",
+            BASE + " -label:promotions"));
+    }
+
+    @Test
+    public void limitsBandsToBoundaries() {
+        Assert.assertEquals(TabPipeline.slices(BASE, 5, "", "30").size(), 2);
+        Assert.assertEquals(TabPipeline.slices(BASE, 1, null, "7,30"), Collections.singletonList(BASE));
+    }
+
+    @Test
+    public void deletesFromEverySliceOnFixtureInboxes() throws Exception {
+        TestSupport.requireChrome("the tab pipeline fixture test");
+        try (FixtureServer server = FixtureServer.start()) {
+            // Plain inboxes: the fixture ignores search operators, so each slice gets its own mailbox
+            FixtureMailbox first = server.createMailbox(120, 20);
+            FixtureMailbox second = server.createMailbox(70, 20);
+            FixtureMailbox third = server.createMailbox(30, 20);
+            Properties props = TestSupport.headlessProfile();
+            props.setProperty("pipeline.tabs", "2");
+            RunMetrics metrics = new RunMetrics();
+            Set<String> givenUp = new LinkedHashSet<>();
+            WebDriver driver = TestSupport.launchHeadless(props);
+            try {
+                TabPipeline pipeline = new TabPipeline(driver, props, metrics,
+                    BatchController.fromProperties(props, metrics), "fixture@example.com", givenUp);
+                // Three slices in two tabs, so one tab moves on to the third slice
+                int deleted = pipeline.run(new ArrayDeque<>(Arrays.asList(
+                    new InboxCursor(server.inboxUrl(first), "", givenUp),
+                    new InboxCursor(server.inboxUrl(second), "", givenUp),
+                    new InboxCursor(server.inboxUrl(third), "", givenUp))), 2);
+
+                Assert.assertEquals(deleted, 220);
+                Assert.assertEquals(first.getRemaining(), 0, "unread conversations left in the first mailbox");
+                Assert.assertEquals(second.getRemaining(), 0, "unread conversations left in the second mailbox");
+                Assert.assertEquals(third.getRemaining(), 0, "unread conversations left in the third mailbox");
+                Assert.assertEquals(metrics.counter("emails.deleted"), 220L);
+                Assert.assertEquals(driver.getWindowHandles().size(), 1, "the pipeline's own tabs are closed");
+                Assert.assertTrue(givenUp.isEmpty(), "no thread was given up on");
+            } finally {
+                driver.quit();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.SkipException;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+/**
+ * Setup shared by the offline tests and benchmarks: skipping when no Chrome is installed,
+ * launching the headless fixture browser, and removing temporary directories.
+ */
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    /**
+     * Skips the calling test class when this host has no Chrome to drive.
+     */
+    static void requireChrome(String skipped) {
+        if (WebDriverManager.chromedriver().getBrowserPath().isEmpty()) {
+            throw new SkipException("Chrome is not installed, skipping " + skipped);
+        }
+    }
+
+    /**
+     * Properties for a headless browser on the lean profile, to which tests add their own.
+     */
+    static Properties headlessProfile() {
+        Properties props = new Properties();
+        props.setProperty("browser.profile", "lean");
+        return props;
+    }
+
+    /**
+     * A headless browser built by {@link BrowserFactory}, as the runs themselves get it.
+     */
+    static WebDriver launchHeadless(Properties props) {
+        return BrowserFactory.launch(BrowserFactory.options(props), props);
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * End-to-end throughput baseline of the Selenium deletion flow against the scripted inbox of
+ * {@link FixtureServer}. For every mailbox size it reports time-to-inbox, emails deleted per
+ * second and WebDriver commands per deleted email, and writes all rows to
+ * target/benchmarks/throughput.json.
+ *
+ * System properties:
+ *   benchmark.sizes        comma separated mailbox sizes (default 10,100,1000,10000)
+ *   benchmark.latency.ms   artificial server latency per request (default 50)
+ */
+public class ThroughputBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ThroughputBenchmark.class);
+
+    private final List<Map<String, Object>> results = new ArrayList<>();
+    private FixtureServer server;
+    private long latencyMillis;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        TestSupport.requireChrome("browser benchmarks");
+        latencyMillis = Long.getLong("benchmark.latency.ms", 50);
+        server = FixtureServer.start();
+    }
+
+    @DataProvider(name = "mailboxSizes")
+    public Object[][] mailboxSizes() {
+        String[] sizes = System.getProperty("benchmark.sizes", "10,100,1000,10000").split(",");
+        Object[][] data = new Object[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            data[i] = new Object[]{Integer.parseInt(sizes[i].trim())};
+        }
+        return data;
+    }
+
+    @Test(dataProvider = "mailboxSizes")
+    public void deleteAllUnread(int unread) throws InterruptedException, IOException {
+        FixtureMailbox mailbox = server.createMailbox(unread, latencyMillis);
+        Properties props = benchmarkProperties();
+        props.setProperty("gmail.base.url", server.inboxUrl(mailbox));
+        RunMetrics metrics = new RunMetrics();
+        WebDriverProfiler profiler = new WebDriverProfiler();
+        metrics.attach(profiler);
+        WebDriver driver = profiler.decorate(
+            BrowserFactory.launch(BrowserFactory.options(props), props));
+        try {
+            WaitEngine waits = WaitEngine.fromProperties(driver, props);
+            long start = System.nanoTime();
+            driver.get(server.inboxUrl(mailbox));
+            waits.until(WaitEngine.Phase.INBOX, ExpectedConditions.presenceOfElementLocated(By.cssSelector("div[role='main']")));
+            long timeToInbox = (System.nanoTime() - start) / 1_000_000;
+            long commandsBefore = profiler.getCommandCount();
+
+            GmailCleaner cleaner = new GmailCleaner(driver, props,
+                new SessionCache(false, Paths.get("target")), new Account("fixture@example.com", "unused"), metrics);
+            long deleteStart = System.nanoTime();
+            boolean success = cleaner.processUnreadEmail();
+            long deleteMillis = Math.max(1, (System.nanoTime() - deleteStart) / 1_000_000);
+
+            int deleted = mailbox.getDeleted();
+            long commands = profiler.getCommandCount() - commandsBefore;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("unread", unread);
+            row.put("latencyMs", latencyMillis);
+            row.put("deleted", deleted);
+            row.put("timeToInboxMs", timeToInbox);
+            row.put("deleteMs", deleteMillis);
+            row.put("emailsPerSecond", deleted * 1000.0 / deleteMillis);
+            row.put("webDriverCommands", commands);
+            row.put("commandsPerEmail", deleted > 0 ? (double) commands / deleted : null);
+            row.put("batchP50Ms", metrics.phase("batch").percentileMillis(50));
+            row.put("batchP95Ms", metrics.phase("batch").percentileMillis(95));
+            row.put("batchP99Ms", metrics.phase("batch").percentileMillis(99));
+            synchronized (results) {
+                results.add(row);
+            }
+            logger.info("{} unread: {} deleted in {} ms ({} emails/s), time-to-inbox {} ms, {} commands/email",
+                unread, deleted, deleteMillis, String.format("%.1f", deleted * 1000.0 / deleteMillis), timeToInbox,
+                deleted > 0 ? String.format("%.2f", (double) commands / deleted) : "n/a");
+
+            metrics.export(Paths.get("target", "benchmarks", "throughput-" + unread + "-metrics.json"));
+            Assert.assertTrue(success, "deletion loop reported failure");
+            Assert.assertEquals(mailbox.getRemaining(), 0, "unread conversations left in fixture mailbox");
+        } finally {
+            driver.quit();
+        }
+    }
+
+    private static Properties benchmarkProperties() {
+        Properties props = new Properties();
+        props.setProperty("browser.profile", "lean");
+        props.setProperty("journal.enabled", "false");
+        props.putAll(System.getProperties());
+        return props;
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        if (!results.isEmpty()) {
+            Path report = Paths.get("target", "benchmarks", "throughput.json");
+            Files.createDirectories(report.getParent());
+            Files.write(report, new Json().toJson(results).getBytes(StandardCharsets.UTF_8));
+            logger.info("Throughput results written to {}", report.toAbsolutePath());
+        }
+    }
+}
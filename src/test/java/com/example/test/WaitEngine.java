@@ -0,0 +1,229 @@
+package com.example.test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Condition-driven replacement for fixed sleeps. Every wait is bounded by a per-phase
+ * timeout and returns as soon as its condition holds; an optional per-phase politeness
+ * floor adds a deliberate pause only where the flow needs to look human (e.g. typing).
+ *
+ * Configured from test.properties:
+ *   wait.polling.ms                 polling interval for all conditions (default 100)
+ *   wait.timeout.[phase].seconds    timeout for a phase, e.g. wait.timeout.confirm.seconds
+ *   wait.politeness.[phase].ms      minimum pause for a phase, 0 disables it
+ */
+public class WaitEngine {
+    private static final Logger logger = LoggerFactory.getLogger(WaitEngine.class);
+
+    public static final By TRASH_TOAST = By.xpath("//span[contains(text(),'moved to') and contains(text(),'Trash')]");
+
+    public enum Phase {
+        LOGIN(20, 150),
+        PROMPTS(5, 0),
+        INBOX(20, 0),
+        RECHECK(2, 0),
+        SELECTION(3, 0),
+        DELETE(10, 0),
+        CONFIRM(20, 0);
+
+        private final long defaultTimeoutSeconds;
+        private final long defaultPolitenessMs;
+
+        Phase(long defaultTimeoutSeconds, long defaultPolitenessMs) {
+            this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+            this.defaultPolitenessMs = defaultPolitenessMs;
+        }
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final WebDriver driver;
+    private final Duration pollingInterval;
+    private final Map<Phase, Duration> timeouts = new EnumMap<>(Phase.class);
+    private final Map<Phase, Duration> politenessFloors = new EnumMap<>(Phase.class);
+    private NetworkReadiness readiness;
+
+    public WaitEngine(WebDriver driver, Duration pollingInterval) {
+        this.driver = driver;
+        this.pollingInterval = pollingInterval;
+        for (Phase phase : Phase.values()) {
+            timeouts.put(phase, Duration.ofSeconds(phase.defaultTimeoutSeconds));
+            politenessFloors.put(phase, Duration.ofMillis(phase.defaultPolitenessMs));
+        }
+    }
+
+    public static WaitEngine fromProperties(WebDriver driver, Properties props) {
+        WaitEngine engine = new WaitEngine(driver,
+            Duration.ofMillis(Long.parseLong(props.getProperty("wait.polling.ms", "100"))));
+        for (Phase phase : Phase.values()) {
+            String timeout = props.getProperty("wait.timeout." + phase.key() + ".seconds");
+            if (timeout != null) {
+                engine.withTimeout(phase, Duration.ofSeconds(Long.parseLong(timeout.trim())));
+            }
+            String politeness = props.getProperty("wait.politeness." + phase.key() + ".ms");
+            if (politeness != null) {
+                engine.withPolitenessFloor(phase, Duration.ofMillis(Long.parseLong(politeness.trim())));
+            }
+        }
+        return engine;
+    }
+
+    public WaitEngine withTimeout(Phase phase, Duration timeout) {
+        timeouts.put(phase, timeout);
+        return this;
+    }
+
+    public WaitEngine withPolitenessFloor(Phase phase, Duration floor) {
+        politenessFloors.put(phase, floor);
+        return this;
+    }
+
+    public WaitEngine withReadiness(NetworkReadiness readiness) {
+        this.readiness = readiness;
+        return this;
+    }
+
+    public Duration timeout(Phase phase) {
+        return timeouts.get(phase);
+    }
+
+    public boolean isPolite(Phase phase) {
+        return !politenessFloors.get(phase).isZero();
+    }
+
+    public <T> T until(Phase phase, ExpectedCondition<T> condition) {
+        return until(timeouts.get(phase), condition);
+    }
+
+    public <T> T until(Duration timeout, ExpectedCondition<T> condition) {
+        WebDriverWait wait = new WebDriverWait(driver, timeout, pollingInterval);
+        wait.ignoring(NoSuchElementException.class);
+        wait.ignoring(StaleElementReferenceException.class);
+        return wait.until(condition);
+    }
+
+    /**
+     * Same as {@link #until(Phase, ExpectedCondition)} but reports a timeout as an empty
+     * result instead of an exception, for checks whose failure is an expected outcome.
+     */
+    public <T> Optional<T> tryUntil(Phase phase, ExpectedCondition<T> condition) {
+        try {
+            return Optional.ofNullable(until(phase, condition));
+        } catch (TimeoutException e) {
+            logger.debug("Condition not met within {} phase timeout: {}", phase, condition);
+            return Optional.empty();
+        }
+    }
+
+    public WebElement clickable(Phase phase, By locator) {
+        return until(phase, ExpectedConditions.elementToBeClickable(locator));
+    }
+
+    public WebElement present(Phase phase, By locator) {
+        return until(phase, ExpectedConditions.presenceOfElementLocated(locator));
+    }
+
+    /**
+     * Waits for the element and then, when network readiness is available, for the page's
+     * traffic to go quiet. A page that never goes quiet within the phase timeout still counts
+     * as usable once the element is there.
+     */
+    public void usable(Phase phase, By locator) {
+        present(phase, locator);
+        if (readiness != null && readiness.isAvailable()) {
+            tryUntil(phase, readiness.networkQuiet());
+        }
+    }
+
+    /**
+     * Sleeps for the phase's politeness floor plus up to the same amount of random jitter.
+     * Does nothing when the floor is zero, which is the default for every phase but LOGIN.
+     */
+    public void pace(Phase phase) throws InterruptedException {
+        long floor = politenessFloors.get(phase).toMillis();
+        if (floor > 0) {
+            Thread.sleep(floor + ThreadLocalRandom.current().nextLong(floor + 1));
+        }
+    }
+
+    public static ExpectedCondition<Boolean> documentReady() {
+        return new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                return "complete".equals(((JavascriptExecutor) driver).executeScript("return document.readyState"));
+            }
+
+            @Override
+            public String toString() {
+                return "document.readyState to be complete";
+            }
+        };
+    }
+
+    public static ExpectedCondition<Integer> rowCountBelow(By locator, int previousCount) {
+        return new ExpectedCondition<Integer>() {
+            @Override
+            public Integer apply(WebDriver driver) {
+                int count = driver.findElements(locator).size();
+                return count < previousCount ? count : null;
+            }
+
+            @Override
+            public String toString() {
+                return String.format("number of elements located by %s to drop below %d", locator, previousCount);
+            }
+        };
+    }
+
+    /**
+     * Holds once the message list shows an unread row that is not excluded, or Gmail's
+     * empty-list marker; a list that only still shows excluded rows keeps it waiting.
+     */
+    public static ExpectedCondition<Boolean> listReady(Collection<String> excludedThreadIds) {
+        List<String> excluded = new ArrayList<>(excludedThreadIds);
+        return new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                Object state = ((JavascriptExecutor) driver).executeScript(
+                    Scripts.bundle("snapshot-rows.js", "list-state.js"), excluded);
+                if (!(state instanceof Map)) {
+                    return false;
+                }
+                Map<?, ?> map = (Map<?, ?>) state;
+                return ((Number) map.get("pending")).intValue() > 0 || Boolean.TRUE.equals(map.get("empty"));
+            }
+
+            @Override
+            public String toString() {
+                return "an unread row outside " + excluded.size() + " excluded threads or the empty-list marker";
+            }
+        };
+    }
+
+    public static ExpectedCondition<WebElement> trashToast() {
+        return ExpectedConditions.presenceOfElementLocated(TRASH_TOAST);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+/**
+ * Counts and times every WebDriver call that turns into a remote command (findElements,
+ * executeScript, getAttribute, navigation, ...), keyed by interface and method name, e.g.
+ * "WebElement.getAttribute". Accessors that only hand out local helper objects
+ * (navigate(), switchTo(), manage(), ...) are not counted.
+ */
+public class WebDriverProfiler implements WebDriverListener {
+    private final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<>();
+    private final AtomicLong commandCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final ThreadLocal<Deque<Long>> started = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public WebDriver decorate(WebDriver driver) {
+        return new EventFiringDecorator<>(this).decorate(driver);
+    }
+
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (isRemoteCommand(method)) {
+            started.get().push(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        finish(method);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        if (isRemoteCommand(method)) {
+            errorCount.incrementAndGet();
+        }
+        finish(method);
+    }
+
+    private void finish(Method method) {
+        if (!isRemoteCommand(method)) {
+            return;
+        }
+        Long start = started.get().poll();
+        if (start == null) {
+            return;
+        }
+        commandCount.incrementAndGet();
+        String key = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        commands.computeIfAbsent(key, name -> new LatencyHistogram()).record(System.nanoTime() - start);
+    }
+
+    public Map<String, Object> toReport() {
+        Map<String, Object> report = new TreeMap<>();
+        commands.forEach((name, histogram) -> report.put(name, histogram.toMap()));
+        Map<String, Object> wrapper = new TreeMap<>();
+        wrapper.put("commands", report);
+        wrapper.put("totalCommands", commandCount.get());
+        wrapper.put("errors", errorCount.get());
+        return wrapper;
+    }
+
+    static boolean isRemoteCommand(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == WebDriver.Navigation.class || returnType == WebDriver.TargetLocator.class
+            || returnType == WebDriver.Options.class || returnType == WebDriver.Timeouts.class
+            || returnType == WebDriver.Window.class) {
+            return false;
+        }
+        switch (method.getName()) {
+            case "equals":
+            case "hashCode":
+            case "toString":
+            case "getWrappedDriver":
+            case "getWrappedElement":
+                return false;
+            default:
+                return true;
+        }
+    }
+}
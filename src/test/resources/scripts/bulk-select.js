@@ -0,0 +1,51 @@
+// Selects the unread rows (tr.zE) on the current page in a single round trip, leaving rows
+// whose thread id is in the optional arguments[0] list alone and stopping after the optional
+// arguments[1] rows. Bundled after snapshot-rows.js.
+// Every checkbox is clicked at most once: Gmail may flip aria-checked only after this script
+// returns, and a second click would then undo the first.
+// Returns {total, selected, skipped, failed: [row indexes], threadIds: [selected thread ids],
+// unsettled: [{index, threadId}] of rows clicked but not yet showing as checked,
+// snapshot: snapshotRows() taken after selecting}.
+var maxRows = typeof arguments[1] === 'number' ? arguments[1] : Infinity;
+var excluded = {};
+(arguments[0] || []).forEach(function (threadId) {
+    excluded[threadId] = true;
+});
+
+var rows = document.querySelectorAll('tr.zE');
+var result = { total: rows.length, selected: 0, skipped: 0, failed: [], threadIds: [], unsettled: [], snapshot: null };
+for (var i = 0; i < rows.length; i++) {
+    var row = rows[i];
+    var id = threadIdOf(row);
+    var checkbox = row.querySelector("div[role='checkbox']");
+    if (id && excluded[id]) {
+        result.skipped++;
+        if (checkbox && checkbox.getAttribute('aria-checked') === 'true') {
+            checkbox.click();
+        }
+        continue;
+    }
+    if (result.selected + result.unsettled.length >= maxRows) {
+        if (checkbox && checkbox.getAttribute('aria-checked') === 'true') {
+            checkbox.click();
+        }
+        continue;
+    }
+    if (!checkbox) {
+        result.failed.push(i);
+        continue;
+    }
+    if (checkbox.getAttribute('aria-checked') !== 'true') {
+        checkbox.click();
+    }
+    if (checkbox.getAttribute('aria-checked') === 'true') {
+        result.selected++;
+        result.threadIds.push(id);
+    } else if (id) {
+        result.unsettled.push({ index: i, threadId: id });
+    } else {
+        result.failed.push(i);
+    }
+}
+result.snapshot = snapshotRows();
+return result;
@@ -0,0 +1,60 @@
+// Starts watching for the outcome of the next delete: remembers the currently selected unread
+// rows and records the "moved to Trash" toast, Gmail error toasts and removed rows as the DOM
+// changes.
+// Returns the number of rows being watched.
+var previous = window.__mailDeletionConfirm;
+if (previous && previous.observer) {
+    previous.observer.disconnect();
+}
+var rows = Array.prototype.filter.call(document.querySelectorAll('tr.zE'), function (row) {
+    var checkbox = row.querySelector("div[role='checkbox']");
+    return checkbox && checkbox.getAttribute('aria-checked') === 'true';
+});
+var state = window.__mailDeletionConfirm = {
+    rows: rows,
+    toast: null,
+    error: null,
+    removed: 0,
+    armedAt: Date.now(),
+    listeners: []
+};
+var toastPattern = /moved to.*Trash/i;
+var errorPattern = /Oops|Temporary Error|try again later|too many requests/i;
+
+function checkToast(node) {
+    var element = node.nodeType === 3 ? node.parentElement : node;
+    // Subjects of rows added to the list can contain anything, only look outside the list
+    if (!element || (element.closest && element.closest('tr'))) {
+        return;
+    }
+    var text = node.nodeType === 3 ? node.nodeValue : node.textContent;
+    if (text && toastPattern.test(text)) {
+        state.toast = text.trim().substring(0, 120);
+    } else if (text && errorPattern.test(text)) {
+        state.error = text.trim().substring(0, 120);
+    }
+}
+
+function isUnreadRow(node) {
+    return node.nodeType === 1 && (node.matches('tr.zE') || node.querySelector('tr.zE') !== null);
+}
+
+state.observer = new MutationObserver(function (mutations) {
+    mutations.forEach(function (mutation) {
+        if (mutation.type === 'characterData') {
+            checkToast(mutation.target);
+            return;
+        }
+        mutation.addedNodes.forEach(checkToast);
+        mutation.removedNodes.forEach(function (node) {
+            if (isUnreadRow(node)) {
+                state.removed++;
+            }
+        });
+    });
+    state.listeners.slice().forEach(function (listener) {
+        listener();
+    });
+});
+state.observer.observe(document.body, { childList: true, subtree: true, characterData: true });
+return rows.length;
@@ -0,0 +1,43 @@
+// Async script: resolves as soon as the armed delete is confirmed by the Trash toast or by
+// every watched row leaving the DOM, or with confirmed=false after arguments[0] ms or as soon
+// as Gmail shows an error toast (reason 'throttled'). Bundled after snapshot-rows.js and
+// confirm-state.js.
+// The result carries a snapshot of the rows Gmail loaded in their place while the delete was
+// in flight ({threadIds, empty}), so the next batch needs no separate scan.
+var timeoutMillis = arguments[0];
+var done = arguments[arguments.length - 1];
+var state = window.__mailDeletionConfirm;
+if (!state) {
+    done({ confirmed: false, reason: 'not armed', removed: 0, elapsedMs: 0 });
+    return;
+}
+
+var timer = null;
+
+function finish(result) {
+    if (timer !== null) {
+        clearTimeout(timer);
+    }
+    state.listeners = state.listeners.filter(function (other) {
+        return other !== listener;
+    });
+    state.observer.disconnect();
+    done(result);
+}
+
+function listener() {
+    var result = confirmEvaluate(state) || confirmThrottled(state);
+    if (result) {
+        finish(result);
+    }
+}
+
+var immediate = confirmEvaluate(state) || confirmThrottled(state);
+if (immediate) {
+    finish(immediate);
+    return;
+}
+state.listeners.push(listener);
+timer = setTimeout(function () {
+    finish({ confirmed: false, reason: 'timeout', removed: state.removed, elapsedMs: Date.now() - state.armedAt });
+}, timeoutMillis);
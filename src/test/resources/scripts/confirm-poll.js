@@ -0,0 +1,13 @@
+// Non-blocking check of the armed delete, for callers that interleave several tabs instead of
+// waiting in one. Bundled after snapshot-rows.js and confirm-state.js. Returns {pending: true}
+// while undecided, otherwise the same result as confirm-await.js, and then stops observing.
+var state = window.__mailDeletionConfirm;
+if (!state) {
+    return { confirmed: false, reason: 'not armed', removed: 0, elapsedMs: 0 };
+}
+var result = confirmEvaluate(state) || confirmThrottled(state);
+if (!result) {
+    return { pending: true, removed: state.removed, elapsedMs: Date.now() - state.armedAt };
+}
+state.observer.disconnect();
+return result;
@@ -0,0 +1,39 @@
+// Shared helpers, bundled in front of confirm-await.js and confirm-poll.js (Scripts.bundle),
+// after snapshot-rows.js. They read the state armed by confirm-arm.js without changing it.
+
+function confirmRowsGone(state) {
+    return state.rows.length > 0 && state.rows.every(function (row) {
+        return !row.isConnected;
+    });
+}
+
+// The rows Gmail loaded in place of the deleted ones ({threadIds, empty}), so the next batch
+// needs no separate scan.
+function confirmSnapshot(state) {
+    var ids = [];
+    var rows = document.querySelectorAll('tr.zE');
+    for (var i = 0; i < rows.length; i++) {
+        if (state.rows.indexOf(rows[i]) >= 0) {
+            continue;
+        }
+        ids.push(threadIdOf(rows[i]));
+    }
+    return { threadIds: ids, empty: rows.length === 0 && emptyMarkerShowing() };
+}
+
+// A confirmed result once the Trash toast appeared or every watched row left the DOM, else null.
+function confirmEvaluate(state) {
+    var via = state.toast ? 'toast' : (confirmRowsGone(state) ? 'rows' : null);
+    if (!via) {
+        return null;
+    }
+    return { confirmed: true, via: via, toast: state.toast, removed: state.removed, elapsedMs: Date.now() - state.armedAt,
+        next: confirmSnapshot(state) };
+}
+
+// An unconfirmed 'throttled' result once Gmail showed an error toast instead, else null.
+function confirmThrottled(state) {
+    return state.error && !state.toast
+        ? { confirmed: false, reason: 'throttled', toast: state.error, removed: state.removed, elapsedMs: Date.now() - state.armedAt }
+        : null;
+}
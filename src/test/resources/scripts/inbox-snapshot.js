@@ -0,0 +1,2 @@
+// Describes the message list in one round trip; bundled after snapshot-rows.js.
+return snapshotRows();
@@ -0,0 +1,15 @@
+// Reports whether the message list has settled: how many unread rows (tr.zE) are showing
+// whose thread id is not in the arguments[0] list, and whether the empty-list marker is visible.
+// Bundled after snapshot-rows.js.
+var excluded = {};
+(arguments[0] || []).forEach(function (threadId) {
+    excluded[threadId] = true;
+});
+var rows = document.querySelectorAll('tr.zE');
+var pending = 0;
+for (var i = 0; i < rows.length; i++) {
+    if (!excluded[threadIdOf(rows[i])]) {
+        pending++;
+    }
+}
+return { pending: pending, empty: rows.length === 0 && emptyMarkerShowing() };
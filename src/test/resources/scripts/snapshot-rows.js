@@ -0,0 +1,39 @@
+// Shared helpers, bundled in front of every script that reads the message list (Scripts.bundle).
+// snapshotRows() describes every row of the message list in one pass:
+// {rows: [{threadId, sender, subject, date, unread, checked}], empty: whether the empty-list
+// marker is showing}. Unread rows are tr.zE, read ones tr.yO; both carry tr.zA in Gmail.
+function threadIdOf(row) {
+    var legacy = row.querySelector('[data-legacy-thread-id]');
+    return legacy ? legacy.getAttribute('data-legacy-thread-id') : (row.getAttribute('data-thread-id') || row.id);
+}
+
+// Whether Gmail shows its empty-list marker, which tells an empty list from one still loading.
+function emptyMarkerShowing() {
+    return Array.prototype.some.call(document.querySelectorAll('.TC'), function (marker) {
+        return marker.offsetParent !== null;
+    });
+}
+
+function snapshotRow(row) {
+    var sender = row.querySelector('span.yP, span.zF, span[email]');
+    var subject = row.querySelector("td[role='gridcell'] span.bog");
+    var date = row.querySelector('td.xW span[title], span[title]');
+    var checkbox = row.querySelector("div[role='checkbox']");
+    return {
+        threadId: threadIdOf(row),
+        sender: sender ? (sender.getAttribute('email') || sender.innerText) : '',
+        subject: subject ? subject.innerText.substring(0, 200) : '',
+        date: date ? date.getAttribute('title') : '',
+        unread: row.classList.contains('zE'),
+        checked: !!checkbox && checkbox.getAttribute('aria-checked') === 'true'
+    };
+}
+
+function snapshotRows() {
+    var rows = document.querySelectorAll('tr.zA, tr.zE, tr.yO');
+    var snapshot = [];
+    for (var i = 0; i < rows.length; i++) {
+        snapshot.push(snapshotRow(rows[i]));
+    }
+    return { rows: snapshot, empty: rows.length === 0 && emptyMarkerShowing() };
+}